@@ -23,11 +23,15 @@ public class JKind {
 			StaticAnalyzer.check(program, settings.solver);
 			if (!LinearChecker.isLinear(program)) {
 				if (settings.pdrMax > 0) {
-					StdErr.warning("PDR not available for some properties due to non-linearities");
+					StdErr.warning("PDR cannot find counterexamples for some properties due to non-linearities");
 				}
 			}
 
-			ensureSolverAvailable(settings.solver);
+			if (settings.portfolio != null) {
+				settings.portfolio.forEach(JKind::ensureSolverAvailable);
+			} else {
+				ensureSolverAvailable(settings.solver);
+			}
 
 			Node main = Translate.translate(program); 
 			if(settings.allAssigned){
@@ -2,22 +2,37 @@ package jkind;
 
 import static java.util.stream.Collectors.joining;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List; 
 import jkind.engines.SolverUtil;   
+import jkind.engines.invariant.CandidateGenerator;
+import jkind.engines.pdr.Generalizer;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 
 public class JKindArgumentParser extends ArgumentParser {
+	private static final String BMC_MAX = "bmc_max";
+	private static final String CLUSTERS = "clusters";
+	private static final String COMPILE = "compile";
 	private static final String EXCEL = "excel";
 	private static final String INDUCT_CEX = "induct_cex";
 	private static final String INTERVAL = "interval"; 
+	private static final String INV_GEN_CANDIDATES = "inv_gen_candidates";
+	private static final String INV_GEN_MODELS = "inv_gen_models";
+	private static final String INV_GEN_SPLIT = "inv_gen_split";
+	private static final String INV_GEN_TEMPLATES = "inv_gen_templates";
 	private static final String MAIN = "main";
 	private static final String N = "n";
 	private static final String NO_BMC = "no_bmc";
 	private static final String NO_INV_GEN = "no_inv_gen";
 	private static final String NO_K_INDUCTION = "no_k_induction"; 
+	private static final String PDR_CHECKPOINT = "pdr_checkpoint";
+	private static final String PDR_GENERALIZER = "pdr_generalizer";
+	private static final String PDR_JOINT = "pdr_joint";
 	private static final String PDR_MAX = "pdr_max";
+	private static final String PORTFOLIO = "portfolio";
+	private static final String PROOF_CACHE = "proof_cache";
 	private static final String READ_ADVICE = "read_advice"; 
 	private static final String IVC = "ivc";
 	private static final String IVC_ALL = "all_ivcs";
@@ -46,9 +61,23 @@ public class JKindArgumentParser extends ArgumentParser {
 	@Override
 	protected Options getOptions() {
 		Options options = super.getOptions();
+		options.addOption(BMC_MAX, true,
+				"maximum number of BMC parallel instances, each with its own solver (default: 1)");
+		options.addOption(CLUSTERS, true,
+				"maximum number of property clusters with disjoint cones of influence analyzed at once, each by its own engines (default: 0, analyze all properties together)");
+		options.addOption(COMPILE, false,
+				"compile the equations to JVM bytecode for simulation (requires a JDK)");
 		options.addOption(EXCEL, false, "generate results in Excel format");
 		options.addOption(INDUCT_CEX, false, "generate inductive counterexamples");
 		options.addOption(INTERVAL, false, "generalize counterexamples using interval analysis");
+		options.addOption(INV_GEN_CANDIDATES, true,
+				"maximum number of candidate invariants proposed by invariant generation (default: 1000)");
+		options.addOption(INV_GEN_MODELS, true,
+				"maximum number of counterexamples gathered before each invariant generation refinement (default: 1)");
+		options.addOption(INV_GEN_SPLIT, false,
+				"also run invariant generation in a separate engine per abstract domain");
+		options.addOption(INV_GEN_TEMPLATES, true,
+				"comma separated candidate invariant templates (default: unary,order,octagon)");
 		options.addOption(IVC, false,
 				"find an inductive validity core for valid properties (based on --%IVC annotated elements)"); 
 		options.addOption(IVC_ALL, false,
@@ -60,8 +89,18 @@ public class JKindArgumentParser extends ArgumentParser {
 		options.addOption(NO_INV_GEN, false, "disable invariant generation");
 		options.addOption(NO_K_INDUCTION, false, "disable k-induction");
 		options.addOption(NO_SLICING, false, "disable slicing");
+		options.addOption(PDR_CHECKPOINT, true,
+				"save PDR frames to and resume them from the specified directory");
+		options.addOption(PDR_GENERALIZER, true,
+				"PDR cube generalization (default: drop, alternatives: core, ctg)");
+		options.addOption(PDR_JOINT, false,
+				"check properties with overlapping cones of influence in a single PDR instance");
 		options.addOption(PDR_MAX, true,
 				"maximum number of PDR parallel instances (0 to disable PDR)");
+		options.addOption(PORTFOLIO, true,
+				"comma separated SMT solvers to race on each query, instead of -solver");
+		options.addOption(PROOF_CACHE, true,
+				"reuse and record results in the specified proof cache directory");
 		options.addOption(READ_ADVICE, true, "read advice from specified file");
 		options.addOption(SCRATCH, false, "produce files for debugging purposes");
 		options.addOption(SMOOTH, false, "smooth counterexamples (minimal changes in input values)");
@@ -96,6 +135,18 @@ public class JKindArgumentParser extends ArgumentParser {
 		ensureExclusive(line, EXCEL, XML_TO_STDOUT);
 		ensureExclusive(line, XML, XML_TO_STDOUT);
 
+		if (line.hasOption(BMC_MAX)) {
+			settings.bmcMax = parseNonnegativeInt(line.getOptionValue(BMC_MAX));
+		}
+
+		if (line.hasOption(CLUSTERS)) {
+			settings.clusters = parseNonnegativeInt(line.getOptionValue(CLUSTERS));
+		}
+
+		if (line.hasOption(COMPILE)) {
+			settings.compiledEvaluation = true;
+		}
+
 		if (line.hasOption(EXCEL)) {
 			settings.excel = true;
 		}
@@ -104,6 +155,22 @@ public class JKindArgumentParser extends ArgumentParser {
 			settings.inductiveCounterexamples = true;
 		}
 
+		if (line.hasOption(INV_GEN_CANDIDATES)) {
+			settings.invGenCandidates = parseNonnegativeInt(line.getOptionValue(INV_GEN_CANDIDATES));
+		}
+
+		if (line.hasOption(INV_GEN_MODELS)) {
+			settings.invGenModels = Math.max(1, parseNonnegativeInt(line.getOptionValue(INV_GEN_MODELS)));
+		}
+
+		if (line.hasOption(INV_GEN_SPLIT)) {
+			settings.invGenSplit = true;
+		}
+
+		if (line.hasOption(INV_GEN_TEMPLATES)) {
+			settings.invGenTemplates = getTemplates(line.getOptionValue(INV_GEN_TEMPLATES));
+		}
+
 		if (line.hasOption(MAIN)) {
 			settings.main = line.getOptionValue(MAIN);
 		}
@@ -128,6 +195,18 @@ public class JKindArgumentParser extends ArgumentParser {
 			settings.n = parseNonnegativeInt(line.getOptionValue(N));
 		}
 
+		if (line.hasOption(PDR_CHECKPOINT)) {
+			settings.pdrCheckpoint = line.getOptionValue(PDR_CHECKPOINT);
+		}
+
+		if (line.hasOption(PDR_GENERALIZER)) {
+			settings.pdrGeneralizer = getGeneralizer(line.getOptionValue(PDR_GENERALIZER));
+		}
+
+		if (line.hasOption(PDR_JOINT)) {
+			settings.pdrJoint = true;
+		}
+
 		if (line.hasOption(PDR_MAX)) {
 			settings.pdrMax = parseNonnegativeInt(line.getOptionValue(PDR_MAX));
 		} else {
@@ -181,6 +260,16 @@ public class JKindArgumentParser extends ArgumentParser {
 			settings.solver = getSolverOption(line.getOptionValue(SOLVER));
 		}
 
+		if (line.hasOption(PORTFOLIO)) {
+			ensureExclusive(line, PORTFOLIO, SOLVER);
+			settings.portfolio = getSolverOptions(line.getOptionValue(PORTFOLIO));
+			settings.solver = settings.portfolio.get(0);
+		}
+
+		if (line.hasOption(PROOF_CACHE)) {
+			settings.proofCache = line.getOptionValue(PROOF_CACHE);
+		}
+
 		if (line.hasOption(WRITE_ADVICE)) {
 			settings.writeAdvice = line.getOptionValue(WRITE_ADVICE);
 		}
@@ -199,6 +288,17 @@ public class JKindArgumentParser extends ArgumentParser {
 		}
 	}
 
+	private static List<SolverOption> getSolverOptions(String solvers) {
+		List<SolverOption> result = new ArrayList<>();
+		for (String solver : solvers.split(",")) {
+			SolverOption option = getSolverOption(solver.trim());
+			if (!result.contains(option)) {
+				result.add(option);
+			}
+		}
+		return result;
+	}
+
 	private static SolverOption getSolverOption(String solver) {
 		List<SolverOption> options = Arrays.asList(SolverOption.values());
 		for (SolverOption option : options) {
@@ -213,6 +313,33 @@ public class JKindArgumentParser extends ArgumentParser {
 		return null;
 	}
 
+	private static List<String> getTemplates(String templates) {
+		List<String> result = new ArrayList<>();
+		for (String template : templates.split(",")) {
+			template = template.trim();
+			if (!CandidateGenerator.TEMPLATES.contains(template)) {
+				StdErr.error("unknown invariant generation template: " + template);
+				StdErr.println("Valid options: " + CandidateGenerator.TEMPLATES);
+				System.exit(ExitCodes.INVALID_OPTIONS);
+			}
+			if (!result.contains(template)) {
+				result.add(template);
+			}
+		}
+		return result;
+	}
+
+	private static String getGeneralizer(String generalizer) {
+		if (Generalizer.NAMES.contains(generalizer)) {
+			return generalizer;
+		}
+
+		StdErr.error("unknown PDR generalizer: " + generalizer);
+		StdErr.println("Valid options: " + Generalizer.NAMES);
+		System.exit(ExitCodes.INVALID_OPTIONS);
+		return null;
+	}
+
 	private void checkSettings() { 
 		
 		if (settings.reduceIvc) {
@@ -235,6 +362,38 @@ public class JKindArgumentParser extends ArgumentParser {
 			}
 		}
 
+		if (settings.portfolio != null) {
+			if (settings.portfolio.contains(SolverOption.YICES)) {
+				StdErr.fatal(ExitCodes.INVALID_OPTIONS, "yices cannot be used in a portfolio");
+			}
+			if (settings.smoothCounterexamples) {
+				StdErr.fatal(ExitCodes.INVALID_OPTIONS, "smoothing not supported with a portfolio");
+			}
+		}
+
+		if (settings.proofCache != null) {
+			if (settings.reduceIvc || settings.allIvcs) {
+				StdErr.fatal(ExitCodes.INVALID_OPTIONS, "proof cache not supported with IVC reduction");
+			}
+			if (settings.smoothCounterexamples || settings.intervalGeneralization) {
+				StdErr.fatal(ExitCodes.INVALID_OPTIONS,
+						"proof cache not supported with counterexample post-processing");
+			}
+		}
+
+		if (settings.pdrCheckpoint != null && settings.pdrMax == 0) {
+			StdErr.warning("PDR checkpoints have no effect with PDR disabled");
+		}
+
+		if (settings.clusters > 0) {
+			if (settings.reduceIvc || settings.allIvcs) {
+				StdErr.fatal(ExitCodes.INVALID_OPTIONS, "clusters not supported with IVC reduction");
+			}
+			if (!settings.slicing) {
+				StdErr.warning("clusters have no effect without slicing");
+			}
+		}
+
 		if (settings.smoothCounterexamples) {
 			if (settings.solver != SolverOption.YICES && settings.solver != SolverOption.Z3) {
 				StdErr.fatal(ExitCodes.INVALID_OPTIONS, "smoothing not supported with "
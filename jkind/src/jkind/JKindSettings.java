@@ -1,5 +1,9 @@
 package jkind;
 
+import java.util.List;
+
+import jkind.engines.invariant.CandidateGenerator;
+import jkind.engines.pdr.Generalizer;
 
 public class JKindSettings extends Settings {
 	public int n = Integer.MAX_VALUE;
@@ -12,9 +16,19 @@ public class JKindSettings extends Settings {
 
 	public String main = null;
 	public boolean boundedModelChecking = true;
+	public int bmcMax = 1;
+	public int clusters = 0;
 	public boolean kInduction = true;
 	public boolean invariantGeneration = true;
+	public int invGenModels = 1;
+	public List<String> invGenTemplates = CandidateGenerator.TEMPLATES;
+	public int invGenCandidates = 1000;
+	public boolean invGenSplit = false;
+	public boolean compiledEvaluation = false;
    	public int pdrMax = 1;
+	public boolean pdrJoint = false;
+	public String pdrGeneralizer = Generalizer.DROP;
+	public String pdrCheckpoint = null;
 	public boolean inductiveCounterexamples = false;
 	public boolean reduceIvc = false;
 	public boolean allIvcs = false;
@@ -23,9 +37,11 @@ public class JKindSettings extends Settings {
 	public boolean inlining = true;
 	public boolean slicing = true;
 	public SolverOption solver = SolverOption.SMTINTERPOL;
+	public List<SolverOption> portfolio = null;
 	public boolean scratch = false;
 	public String writeAdvice = null;
 	public String readAdvice = null; 
+	public String proofCache = null;
 	public boolean allAssigned = false; 
 	public String useUnsatCore = null;
 	
@@ -41,9 +57,19 @@ public class JKindSettings extends Settings {
 
 		this.main = settings.main;
 		this.boundedModelChecking = settings.boundedModelChecking;
+		this.bmcMax = settings.bmcMax;
+		this.clusters = settings.clusters;
 		this.kInduction = settings.kInduction;
 		this.invariantGeneration = settings.invariantGeneration;
+		this.invGenModels = settings.invGenModels;
+		this.invGenTemplates = settings.invGenTemplates;
+		this.invGenCandidates = settings.invGenCandidates;
+		this.invGenSplit = settings.invGenSplit;
+		this.compiledEvaluation = settings.compiledEvaluation;
 	   	this.pdrMax = settings.pdrMax;
+		this.pdrJoint = settings.pdrJoint;
+		this.pdrGeneralizer = settings.pdrGeneralizer;
+		this.pdrCheckpoint = settings.pdrCheckpoint;
 		this.inductiveCounterexamples = settings.inductiveCounterexamples;
 		this.reduceIvc = settings.reduceIvc;
 		this.allIvcs = settings.allIvcs;
@@ -52,9 +78,11 @@ public class JKindSettings extends Settings {
 		this.inlining = settings.inlining;
 		this.slicing = settings.slicing;
 		this.solver = settings.solver;
+		this.portfolio = settings.portfolio;
 		this.scratch = settings.scratch;
 		this.writeAdvice = settings.writeAdvice;
 		this.readAdvice = settings.readAdvice; 
+		this.proofCache = settings.proofCache;
 		this.allAssigned = settings.allAssigned; 
 		this.useUnsatCore = settings.useUnsatCore;
 		
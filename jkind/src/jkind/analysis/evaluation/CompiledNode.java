@@ -0,0 +1,117 @@
+package jkind.analysis.evaluation;
+
+import java.math.BigInteger;
+
+import jkind.lustre.values.BooleanValue;
+import jkind.lustre.values.IntegerValue;
+import jkind.lustre.values.Value;
+
+/**
+ * Expressions of a flattened node compiled by {@link NodeCompiler}. Variables
+ * are read from arrays of values indexed by slot, for the previous and the
+ * current step.
+ *
+ * Compiled expressions compute integers as longs and throw
+ * {@link Overflow} when a value does not fit, in which case the caller
+ * should evaluate the expression with big integers instead. Other
+ * arithmetic errors are reported as by {@link IntegerValue}.
+ */
+public abstract class CompiledNode {
+	public static class Overflow extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private Overflow() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Overflow OVERFLOW = new Overflow();
+
+	private boolean[] supported;
+
+	void setSupported(boolean[] supported) {
+		this.supported = supported;
+	}
+
+	/**
+	 * Whether the expression with the given index was compiled
+	 */
+	public boolean supports(int expr) {
+		return supported[expr];
+	}
+
+	public abstract Value eval(int expr, Value[] previous, Value[] current, boolean initial);
+
+	/*
+	 * Support for generated code
+	 */
+
+	protected static long toLong(Value value) {
+		BigInteger i = ((IntegerValue) value).value;
+		if (i.bitLength() >= Long.SIZE) {
+			throw OVERFLOW;
+		}
+		return i.longValue();
+	}
+
+	protected static boolean toBoolean(Value value) {
+		return ((BooleanValue) value).value;
+	}
+
+	protected static Value box(long value) {
+		return new IntegerValue(BigInteger.valueOf(value));
+	}
+
+	protected static Value box(boolean value) {
+		return BooleanValue.fromBoolean(value);
+	}
+
+	protected static long add(long a, long b) {
+		long result = a + b;
+		if (((a ^ result) & (b ^ result)) < 0) {
+			throw OVERFLOW;
+		}
+		return result;
+	}
+
+	protected static long subtract(long a, long b) {
+		long result = a - b;
+		if (((a ^ b) & (a ^ result)) < 0) {
+			throw OVERFLOW;
+		}
+		return result;
+	}
+
+	protected static long multiply(long a, long b) {
+		try {
+			return Math.multiplyExact(a, b);
+		} catch (ArithmeticException e) {
+			throw OVERFLOW;
+		}
+	}
+
+	protected static long negate(long a) {
+		if (a == Long.MIN_VALUE) {
+			throw OVERFLOW;
+		}
+		return -a;
+	}
+
+	/**
+	 * Division as in SMT solvers, rounding down, with the same restriction to
+	 * positive divisors as {@link BigInteger#mod(BigInteger)}
+	 */
+	protected static long divide(long a, long b) {
+		if (b <= 0) {
+			throw new ArithmeticException("Non-positive divisor");
+		}
+		return Math.floorDiv(a, b);
+	}
+
+	protected static long modulus(long a, long b) {
+		if (b <= 0) {
+			throw new ArithmeticException("Non-positive divisor");
+		}
+		return Math.floorMod(a, b);
+	}
+}
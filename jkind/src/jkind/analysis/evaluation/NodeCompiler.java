@@ -0,0 +1,353 @@
+package jkind.analysis.evaluation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BinaryOp;
+import jkind.lustre.BoolExpr;
+import jkind.lustre.EnumType;
+import jkind.lustre.Expr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.IfThenElseExpr;
+import jkind.lustre.IntExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.SubrangeIntType;
+import jkind.lustre.Type;
+import jkind.lustre.UnaryExpr;
+import jkind.lustre.UnaryOp;
+
+/**
+ * Compiles expressions of a flattened node into a generated class, through
+ * Java source and the system Java compiler, so that evaluation runs as JVM
+ * bytecode on primitive longs and booleans instead of walking the expression
+ * tree over big number values.
+ *
+ * Only expressions over integers and booleans are compiled. Others, such as
+ * those involving reals, are left to the caller, as are values which
+ * overflow a long at run time (see {@link CompiledNode}).
+ */
+public class NodeCompiler {
+	/* Expressions per generated dispatch method, to stay within method size limits */
+	private static final int CHUNK = 500;
+
+	private static final AtomicInteger counter = new AtomicInteger();
+
+	private final Map<String, Integer> slots;
+	private final Map<String, Type> typeMap;
+
+	private NodeCompiler(Map<String, Integer> slots, Map<String, Type> typeMap) {
+		this.slots = slots;
+		this.typeMap = typeMap;
+	}
+
+	/**
+	 * Compile the given expressions, where variables are read from the given
+	 * slots. Returns null if no Java compiler is available or compilation
+	 * fails, in which case the expressions must be evaluated otherwise.
+	 */
+	public static CompiledNode compile(List<Expr> exprs, Map<String, Integer> slots,
+			Map<String, Type> typeMap) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			return null;
+		}
+
+		NodeCompiler nodeCompiler = new NodeCompiler(slots, typeMap);
+		boolean[] supported = new boolean[exprs.size()];
+		String name = "CompiledNode" + counter.incrementAndGet();
+		String source = nodeCompiler.generate(name, exprs, supported);
+
+		try {
+			Class<?> klass = nodeCompiler.load(compiler, name, source);
+			if (klass == null) {
+				return null;
+			}
+			CompiledNode result = (CompiledNode) klass.getConstructor().newInstance();
+			result.setSupported(supported);
+			return result;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Source generation
+	 */
+
+	private String generate(String name, List<Expr> exprs, boolean[] supported) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("import jkind.lustre.values.Value;\n\n");
+		sb.append("public class " + name + " extends " + CompiledNode.class.getName() + " {\n");
+
+		int chunks = (exprs.size() + CHUNK - 1) / CHUNK;
+		sb.append("  public Value eval(int e, Value[] p, Value[] c, boolean init) {\n");
+		sb.append("    switch (e / " + CHUNK + ") {\n");
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			sb.append("    case " + chunk + ": return eval" + chunk + "(e, p, c, init);\n");
+		}
+		sb.append("    default: return null;\n");
+		sb.append("    }\n");
+		sb.append("  }\n\n");
+
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			sb.append("  private static Value eval" + chunk
+					+ "(int e, Value[] p, Value[] c, boolean init) {\n");
+			sb.append("    switch (e) {\n");
+			for (int i = chunk * CHUNK; i < Math.min(exprs.size(), (chunk + 1) * CHUNK); i++) {
+				String code = box(exprs.get(i));
+				if (code != null) {
+					supported[i] = true;
+					sb.append("    case " + i + ": return " + code + ";\n");
+				}
+			}
+			sb.append("    default: return null;\n");
+			sb.append("    }\n");
+			sb.append("  }\n\n");
+		}
+
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	private enum Sort {
+		BOOL, INT
+	}
+
+	private String box(Expr expr) {
+		Sort sort = getSort(expr);
+		if (sort == null) {
+			return null;
+		}
+
+		String code = generate(expr, false);
+		return code == null ? null : "box(" + code + ")";
+	}
+
+	/**
+	 * The sort of an expression, or null if it cannot be compiled
+	 */
+	private Sort getSort(Expr expr) {
+		if (expr instanceof BoolExpr) {
+			return Sort.BOOL;
+		} else if (expr instanceof IntExpr) {
+			return ((IntExpr) expr).value.bitLength() < Long.SIZE ? Sort.INT : null;
+		} else if (expr instanceof IdExpr) {
+			Type type = typeMap.get(((IdExpr) expr).id);
+			if (type == NamedType.BOOL) {
+				return Sort.BOOL;
+			} else if (type == NamedType.INT || type instanceof SubrangeIntType
+					|| type instanceof EnumType) {
+				return Sort.INT;
+			}
+			return null;
+		} else if (expr instanceof UnaryExpr) {
+			UnaryExpr ue = (UnaryExpr) expr;
+			Sort sort = getSort(ue.expr);
+			if (ue.op == UnaryOp.NOT) {
+				return sort == Sort.BOOL ? Sort.BOOL : null;
+			} else if (ue.op == UnaryOp.NEGATIVE) {
+				return sort == Sort.INT ? Sort.INT : null;
+			}
+			return sort;
+		} else if (expr instanceof BinaryExpr) {
+			BinaryExpr be = (BinaryExpr) expr;
+			Sort left = getSort(be.left);
+			Sort right = getSort(be.right);
+			if (left == null || left != right) {
+				return null;
+			}
+
+			switch (be.op) {
+			case PLUS:
+			case MINUS:
+			case MULTIPLY:
+			case INT_DIVIDE:
+			case MODULUS:
+				return left == Sort.INT ? Sort.INT : null;
+			case GREATER:
+			case LESS:
+			case GREATEREQUAL:
+			case LESSEQUAL:
+				return left == Sort.INT ? Sort.BOOL : null;
+			case OR:
+			case AND:
+			case XOR:
+			case IMPLIES:
+				return left == Sort.BOOL ? Sort.BOOL : null;
+			case EQUAL:
+			case NOTEQUAL:
+				return Sort.BOOL;
+			case ARROW:
+				return left;
+			default:
+				return null;
+			}
+		} else if (expr instanceof IfThenElseExpr) {
+			IfThenElseExpr ite = (IfThenElseExpr) expr;
+			Sort thenSort = getSort(ite.thenExpr);
+			if (getSort(ite.cond) != Sort.BOOL || thenSort == null
+					|| thenSort != getSort(ite.elseExpr)) {
+				return null;
+			}
+			return thenSort;
+		} else {
+			return null;
+		}
+	}
+
+	private String generate(Expr expr, boolean pre) {
+		if (expr instanceof BoolExpr) {
+			return Boolean.toString(((BoolExpr) expr).value);
+		} else if (expr instanceof IntExpr) {
+			return ((IntExpr) expr).value + "L";
+		} else if (expr instanceof IdExpr) {
+			IdExpr id = (IdExpr) expr;
+			String read = (pre ? "p[" : "c[") + slots.get(id.id) + "]";
+			return getSort(id) == Sort.BOOL ? "toBoolean(" + read + ")" : "toLong(" + read + ")";
+		} else if (expr instanceof UnaryExpr) {
+			UnaryExpr ue = (UnaryExpr) expr;
+			switch (ue.op) {
+			case PRE:
+				return generate(ue.expr, true);
+			case NOT:
+				return "(!" + generate(ue.expr, pre) + ")";
+			default:
+				return "negate(" + generate(ue.expr, pre) + ")";
+			}
+		} else if (expr instanceof BinaryExpr) {
+			return generate((BinaryExpr) expr, pre);
+		} else {
+			IfThenElseExpr ite = (IfThenElseExpr) expr;
+			return "(" + generate(ite.cond, pre) + " ? " + generate(ite.thenExpr, pre) + " : "
+					+ generate(ite.elseExpr, pre) + ")";
+		}
+	}
+
+	private String generate(BinaryExpr e, boolean pre) {
+		String left = generate(e.left, pre);
+		String right = generate(e.right, pre);
+		switch (e.op) {
+		case ARROW:
+			return "(init ? " + left + " : " + right + ")";
+		case PLUS:
+			return call("add", left, right);
+		case MINUS:
+			return call("subtract", left, right);
+		case MULTIPLY:
+			return call("multiply", left, right);
+		case INT_DIVIDE:
+			return call("divide", left, right);
+		case MODULUS:
+			return call("modulus", left, right);
+		case IMPLIES:
+			return "(!" + left + " | " + right + ")";
+		default:
+			// Both sides are evaluated, as by Evaluator, so that arithmetic
+			// errors are raised in the same places
+			return "(" + left + " " + getJavaOperator(e.op) + " " + right + ")";
+		}
+	}
+
+	private static String call(String method, String left, String right) {
+		return method + "(" + left + ", " + right + ")";
+	}
+
+	private static String getJavaOperator(BinaryOp op) {
+		switch (op) {
+		case EQUAL:
+			return "==";
+		case NOTEQUAL:
+		case XOR:
+			return "!=";
+		case GREATER:
+			return ">";
+		case LESS:
+			return "<";
+		case GREATEREQUAL:
+			return ">=";
+		case LESSEQUAL:
+			return "<=";
+		case OR:
+			return "|";
+		case AND:
+			return "&";
+		default:
+			throw new IllegalArgumentException("Unexpected operator: " + op);
+		}
+	}
+
+	/*
+	 * In-memory compilation
+	 */
+
+	private Class<?> load(JavaCompiler compiler, String name, String source) {
+		Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, null);
+		ForwardingJavaFileManager<StandardJavaFileManager> fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(
+				standard) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, String className,
+					Kind kind, FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("mem:///" + className + ".class"), kind) {
+					@Override
+					public OutputStream openOutputStream() {
+						ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+						classes.put(className, bytes);
+						return bytes;
+					}
+				};
+			}
+		};
+
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("mem:///" + name + ".java"),
+				Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+
+		List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+				"-g:none", "-nowarn");
+		Boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+				Arrays.asList(file)).call();
+		if (!success || !classes.containsKey(name)) {
+			return null;
+		}
+
+		byte[] bytes = classes.get(name).toByteArray();
+		ClassLoader loader = new ClassLoader(CompiledNode.class.getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String className) throws ClassNotFoundException {
+				if (className.equals(name)) {
+					return defineClass(name, bytes, 0, bytes.length);
+				}
+				return super.findClass(className);
+			}
+		};
+
+		try {
+			return loader.loadClass(name);
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,559 @@
+package jkind.analysis.evaluation;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jkind.lustre.ArrayAccessExpr;
+import jkind.lustre.ArrayExpr;
+import jkind.lustre.ArrayUpdateExpr;
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BinaryOp;
+import jkind.lustre.BoolExpr;
+import jkind.lustre.CastExpr;
+import jkind.lustre.CondactExpr;
+import jkind.lustre.EnumType;
+import jkind.lustre.Equation;
+import jkind.lustre.Expr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.IfThenElseExpr;
+import jkind.lustre.IntExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.Node;
+import jkind.lustre.NodeCallExpr;
+import jkind.lustre.RealExpr;
+import jkind.lustre.RecordAccessExpr;
+import jkind.lustre.RecordExpr;
+import jkind.lustre.RecordUpdateExpr;
+import jkind.lustre.SubrangeIntType;
+import jkind.lustre.TupleExpr;
+import jkind.lustre.Type;
+import jkind.lustre.UnaryExpr;
+import jkind.lustre.UnaryOp;
+import jkind.lustre.VarDecl;
+import jkind.lustre.values.BooleanValue;
+import jkind.lustre.values.IntegerValue;
+import jkind.lustre.values.RealValue;
+import jkind.lustre.values.Value;
+import jkind.lustre.visitors.ExprIterVisitor;
+import jkind.lustre.visitors.ExprVisitor;
+import jkind.util.BigFraction;
+import jkind.util.Util;
+
+/**
+ * This class is used by invariant generation to run a node on random inputs.
+ * It assumes that all transformations have been performed and the Lustre is
+ * in a simple format.
+ *
+ * The equations are compiled once into closures over arrays of values, one
+ * slot per variable, and evaluated in dependency order at each step. Inputs,
+ * and the state before the first step, are chosen at random within their
+ * types. A trace ends before the first step which violates an assertion or a
+ * subrange, or which cannot be evaluated, so that every state it contains is
+ * reachable.
+ *
+ * In constrained mode, inputs equated to an expression by an assertion are
+ * computed from that expression rather than chosen, other integer inputs are
+ * often drawn from the constants of the node, and a failed step is retried
+ * with new inputs before the trace is ended.
+ *
+ * Optionally, expressions are also compiled to JVM bytecode, see
+ * {@link NodeCompiler}.
+ */
+public class Simulator {
+	/* Unbounded integers are drawn from [-INT_RANGE, INT_RANGE] */
+	private static final int INT_RANGE = 20;
+	private static final int CONSTRAINED_ATTEMPTS = 20;
+
+	private interface Code {
+		Value eval();
+	}
+
+	private final Node node;
+	private final Random random;
+
+	private final Map<String, Integer> slots = new HashMap<>();
+	private final List<String> ids = new ArrayList<>();
+	private final List<Type> types = new ArrayList<>();
+	private final Map<Integer, Expr> definitions = new HashMap<>();
+	private final Map<Integer, Expr> inputDefinitions = new HashMap<>();
+	private final Code[] code;
+	private final Code[] inputCode;
+	private final List<Code> assertions = new ArrayList<>();
+	private final int[] order;
+	private final int[] constrainedOrder;
+	private final List<BigInteger> constants;
+
+	private Value[] previous;
+	private Value[] current;
+	private boolean initial;
+	private boolean constrained;
+
+	/**
+	 * If compiled is set, expressions are also compiled to JVM bytecode by
+	 * {@link NodeCompiler} where possible
+	 */
+	public Simulator(Node node, long seed, boolean compiled) {
+		this.node = node;
+		this.random = new Random(seed);
+
+		Map<String, Type> typeMap = Util.getTypeMap(node);
+		for (VarDecl vd : Util.getVarDecls(node)) {
+			slots.put(vd.id, ids.size());
+			ids.add(vd.id);
+			types.add(typeMap.get(vd.id));
+		}
+
+		for (Equation eq : node.equations) {
+			definitions.put(slots.get(eq.lhs.get(0).id), eq.expr);
+		}
+		for (Expr assertion : node.assertions) {
+			addInputDefinitions(assertion);
+		}
+
+		List<Expr> exprs = new ArrayList<>();
+		List<Integer> definitionSlots = new ArrayList<>(definitions.keySet());
+		List<Integer> inputSlots = new ArrayList<>(inputDefinitions.keySet());
+		definitionSlots.forEach(slot -> exprs.add(definitions.get(slot)));
+		inputSlots.forEach(slot -> exprs.add(inputDefinitions.get(slot)));
+		exprs.addAll(node.assertions);
+
+		Code[] compiledExprs = compile(exprs, typeMap, compiled);
+		this.code = new Code[ids.size()];
+		this.inputCode = new Code[ids.size()];
+		int i = 0;
+		for (int slot : definitionSlots) {
+			code[slot] = compiledExprs[i++];
+		}
+		for (int slot : inputSlots) {
+			inputCode[slot] = compiledExprs[i++];
+		}
+		while (i < compiledExprs.length) {
+			assertions.add(compiledExprs[i++]);
+		}
+
+		this.order = computeOrder(definitions);
+		Map<Integer, Expr> allDefinitions = new HashMap<>(definitions);
+		allDefinitions.putAll(inputDefinitions);
+		this.constrainedOrder = computeOrder(allDefinitions);
+		this.constants = getConstants(node);
+	}
+
+	/**
+	 * Run the node from a random initial state for at most the given number
+	 * of steps, returning the reachable states
+	 */
+	public List<Map<String, Value>> simulate(int steps, boolean constrained) {
+		this.constrained = constrained;
+		List<Map<String, Value>> trace = new ArrayList<>();
+		previous = new Value[ids.size()];
+		for (int slot = 0; slot < previous.length; slot++) {
+			previous[slot] = randomValue(types.get(slot));
+		}
+
+		initial = true;
+		int attempts = constrained ? CONSTRAINED_ATTEMPTS : 1;
+		for (int i = 0; i < steps; i++) {
+			if (!step(attempts)) {
+				break;
+			}
+
+			trace.add(toMap(current));
+			previous = current;
+			initial = false;
+		}
+		return trace;
+	}
+
+	private boolean step(int attempts) {
+		for (int i = 0; i < attempts; i++) {
+			current = new Value[ids.size()];
+			try {
+				if (evaluate()) {
+					return true;
+				}
+			} catch (ArithmeticException e) {
+				// Try again with other inputs
+			}
+		}
+		return false;
+	}
+
+	private boolean evaluate() {
+		for (int slot : constrained ? constrainedOrder : order) {
+			Value value;
+			if (code[slot] != null) {
+				value = code[slot].eval();
+			} else if (constrained && inputCode[slot] != null) {
+				value = inputCode[slot].eval();
+			} else {
+				value = randomValue(types.get(slot));
+			}
+
+			if (!inType(value, types.get(slot))) {
+				return false;
+			}
+			current[slot] = value;
+		}
+
+		for (Code assertion : assertions) {
+			if (assertion.eval() != BooleanValue.TRUE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Map<String, Value> toMap(Value[] values) {
+		Map<String, Value> state = new HashMap<>();
+		for (int slot = 0; slot < values.length; slot++) {
+			state.put(ids.get(slot), values[slot]);
+		}
+		return state;
+	}
+
+	private Value randomValue(Type type) {
+		if (type == NamedType.BOOL) {
+			return BooleanValue.fromBoolean(random.nextBoolean());
+		} else if (type == NamedType.INT) {
+			return new IntegerValue(randomInt(null, null));
+		} else if (type == NamedType.REAL) {
+			BigInteger num = BigInteger.valueOf(random.nextInt(2 * INT_RANGE + 1) - INT_RANGE);
+			BigInteger denom = BigInteger.valueOf(1 + random.nextInt(4));
+			return new RealValue(new BigFraction(num, denom));
+		} else if (type instanceof SubrangeIntType) {
+			SubrangeIntType subrange = (SubrangeIntType) type;
+			return new IntegerValue(randomInt(subrange.low, subrange.high));
+		} else if (type instanceof EnumType) {
+			BigInteger high = BigInteger.valueOf(((EnumType) type).values.size() - 1);
+			return new IntegerValue(randomInt(BigInteger.ZERO, high));
+		} else {
+			return null;
+		}
+	}
+
+	private BigInteger randomInt(BigInteger low, BigInteger high) {
+		if (constrained && !constants.isEmpty() && random.nextBoolean()) {
+			BigInteger constant = constants.get(random.nextInt(constants.size()));
+			if ((low == null || low.compareTo(constant) <= 0)
+					&& (high == null || constant.compareTo(high) <= 0)) {
+				return constant;
+			}
+		}
+
+		if (low == null) {
+			return BigInteger.valueOf(random.nextInt(2 * INT_RANGE + 1) - INT_RANGE);
+		}
+		BigInteger width = high.subtract(low).add(BigInteger.ONE);
+		return low.add(new BigInteger(width.bitLength() + 8, random).mod(width));
+	}
+
+	private boolean inType(Value value, Type type) {
+		if (value == null) {
+			return false;
+		} else if (type instanceof SubrangeIntType) {
+			SubrangeIntType subrange = (SubrangeIntType) type;
+			BigInteger i = ((IntegerValue) value).value;
+			return subrange.low.compareTo(i) <= 0 && i.compareTo(subrange.high) <= 0;
+		} else if (type instanceof EnumType) {
+			BigInteger i = ((IntegerValue) value).value;
+			BigInteger size = BigInteger.valueOf(((EnumType) type).values.size());
+			return i.signum() >= 0 && i.compareTo(size) < 0;
+		} else {
+			return true;
+		}
+	}
+
+	/*
+	 * Constrained inputs
+	 */
+
+	private void addInputDefinitions(Expr assertion) {
+		if (assertion instanceof BinaryExpr) {
+			BinaryExpr be = (BinaryExpr) assertion;
+			if (be.op == BinaryOp.AND) {
+				addInputDefinitions(be.left);
+				addInputDefinitions(be.right);
+			} else if (be.op == BinaryOp.EQUAL) {
+				addInputDefinition(be.left, be.right);
+				addInputDefinition(be.right, be.left);
+			}
+		} else if (assertion instanceof UnaryExpr) {
+			UnaryExpr ue = (UnaryExpr) assertion;
+			if (ue.op == UnaryOp.NOT) {
+				addInputDefinition(ue.expr, new BoolExpr(false));
+			}
+		} else {
+			addInputDefinition(assertion, new BoolExpr(true));
+		}
+	}
+
+	private void addInputDefinition(Expr lhs, Expr rhs) {
+		if (!(lhs instanceof IdExpr)) {
+			return;
+		}
+
+		Integer slot = slots.get(((IdExpr) lhs).id);
+		if (slot != null && !definitions.containsKey(slot) && !inputDefinitions.containsKey(slot)
+				&& !dependsOn(rhs, slot)) {
+			inputDefinitions.put(slot, rhs);
+		}
+	}
+
+	private boolean dependsOn(Expr expr, int slot) {
+		Set<Integer> visited = new HashSet<>();
+		List<Integer> todo = new ArrayList<>(getCurrentDependencies(expr));
+		while (!todo.isEmpty()) {
+			int dep = todo.remove(todo.size() - 1);
+			if (dep == slot) {
+				return true;
+			}
+			if (visited.add(dep)) {
+				Expr definition = definitions.getOrDefault(dep, inputDefinitions.get(dep));
+				if (definition != null) {
+					todo.addAll(getCurrentDependencies(definition));
+				}
+			}
+		}
+		return false;
+	}
+
+	private static List<BigInteger> getConstants(Node node) {
+		Set<BigInteger> constants = new TreeSet<>();
+		for (Equation eq : node.equations) {
+			eq.expr.accept(new ExprIterVisitor() {
+				@Override
+				public Void visit(IntExpr e) {
+					constants.add(e.value.subtract(BigInteger.ONE));
+					constants.add(e.value);
+					constants.add(e.value.add(BigInteger.ONE));
+					return null;
+				}
+			});
+		}
+		return new ArrayList<>(constants);
+	}
+
+	/*
+	 * Evaluation order
+	 */
+
+	private int[] computeOrder(Map<Integer, Expr> definitions) {
+		List<Integer> result = new ArrayList<>();
+		Set<Integer> visited = new HashSet<>();
+		for (int slot = 0; slot < ids.size(); slot++) {
+			addInOrder(slot, definitions, visited, result);
+		}
+		return result.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private void addInOrder(int slot, Map<Integer, Expr> definitions, Set<Integer> visited,
+			List<Integer> result) {
+		if (!visited.add(slot)) {
+			return;
+		}
+
+		Expr expr = definitions.get(slot);
+		if (expr != null) {
+			for (int dep : getCurrentDependencies(expr)) {
+				addInOrder(dep, definitions, visited, result);
+			}
+		}
+		result.add(slot);
+	}
+
+	private Set<Integer> getCurrentDependencies(Expr expr) {
+		Set<Integer> result = new HashSet<>();
+		expr.accept(new ExprIterVisitor() {
+			@Override
+			public Void visit(IdExpr e) {
+				result.add(slots.get(e.id));
+				return null;
+			}
+
+			@Override
+			public Void visit(UnaryExpr e) {
+				if (e.op != UnaryOp.PRE) {
+					super.visit(e);
+				}
+				return null;
+			}
+		});
+		return result;
+	}
+
+	/*
+	 * Compilation
+	 */
+
+	/**
+	 * Expressions are compiled to closures, and also to bytecode if
+	 * requested. Bytecode falls back to the closures when a value overflows.
+	 */
+	private Code[] compile(List<Expr> exprs, Map<String, Type> typeMap, boolean compiled) {
+		CompiledNode compiledNode = compiled ? NodeCompiler.compile(exprs, slots, typeMap) : null;
+		Code[] result = new Code[exprs.size()];
+		for (int i = 0; i < exprs.size(); i++) {
+			Code closure = exprs.get(i).accept(new Compiler(false));
+			if (compiledNode != null && compiledNode.supports(i)) {
+				int index = i;
+				result[i] = () -> {
+					try {
+						return compiledNode.eval(index, previous, current, initial);
+					} catch (CompiledNode.Overflow e) {
+						return closure.eval();
+					}
+				};
+			} else {
+				result[i] = closure;
+			}
+		}
+		return result;
+	}
+
+	private class Compiler implements ExprVisitor<Code> {
+		private final boolean pre;
+
+		public Compiler(boolean pre) {
+			this.pre = pre;
+		}
+
+		@Override
+		public Code visit(BinaryExpr e) {
+			Code left = e.left.accept(this);
+			Code right = e.right.accept(this);
+			if (e.op == BinaryOp.ARROW) {
+				return () -> initial ? left.eval() : right.eval();
+			}
+
+			BinaryOp op = e.op;
+			return () -> {
+				Value l = left.eval();
+				Value r = right.eval();
+				return l == null || r == null ? null : l.applyBinaryOp(op, r);
+			};
+		}
+
+		@Override
+		public Code visit(BoolExpr e) {
+			Value value = BooleanValue.fromBoolean(e.value);
+			return () -> value;
+		}
+
+		@Override
+		public Code visit(CastExpr e) {
+			Code expr = e.expr.accept(this);
+			Type type = e.type;
+			return () -> {
+				Value value = expr.eval();
+				return value == null ? null : Util.cast(type, value);
+			};
+		}
+
+		@Override
+		public Code visit(IdExpr e) {
+			int slot = slots.get(e.id);
+			if (pre) {
+				return () -> previous[slot];
+			} else {
+				return () -> current[slot];
+			}
+		}
+
+		@Override
+		public Code visit(IfThenElseExpr e) {
+			Code cond = e.cond.accept(this);
+			Code thenExpr = e.thenExpr.accept(this);
+			Code elseExpr = e.elseExpr.accept(this);
+			return () -> {
+				Value value = cond.eval();
+				if (value == null) {
+					return null;
+				}
+				return ((BooleanValue) value).value ? thenExpr.eval() : elseExpr.eval();
+			};
+		}
+
+		@Override
+		public Code visit(IntExpr e) {
+			Value value = new IntegerValue(e.value);
+			return () -> value;
+		}
+
+		@Override
+		public Code visit(RealExpr e) {
+			Value value = new RealValue(BigFraction.valueOf(e.value));
+			return () -> value;
+		}
+
+		@Override
+		public Code visit(UnaryExpr e) {
+			if (e.op == UnaryOp.PRE) {
+				return e.expr.accept(new Compiler(true));
+			}
+
+			Code expr = e.expr.accept(this);
+			UnaryOp op = e.op;
+			return () -> {
+				Value value = expr.eval();
+				return value == null ? null : value.applyUnaryOp(op);
+			};
+		}
+
+		@Override
+		public Code visit(ArrayAccessExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(ArrayExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(ArrayUpdateExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(CondactExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(NodeCallExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(RecordAccessExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(RecordExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(RecordUpdateExpr e) {
+			throw unsupported(e);
+		}
+
+		@Override
+		public Code visit(TupleExpr e) {
+			throw unsupported(e);
+		}
+
+		private IllegalArgumentException unsupported(Expr e) {
+			return new IllegalArgumentException("Cannot simulate " + e.getClass().getSimpleName()
+					+ " in flattened node " + node.id);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package jkind.analysis.evaluation;
+
+import java.util.Map;
+
+import jkind.lustre.IdExpr;
+import jkind.lustre.values.Value;
+
+/**
+ * Evaluation of current-state expressions in a single concrete state, such as
+ * one produced by {@link Simulator}
+ */
+public class StateEvaluator extends Evaluator {
+	private final Map<String, Value> state;
+
+	public StateEvaluator(Map<String, Value> state) {
+		this.state = state;
+	}
+
+	@Override
+	public Value visit(IdExpr e) {
+		return state.get(e.id);
+	}
+}
@@ -0,0 +1,22 @@
+package jkind.cache;
+
+import java.util.List;
+
+import jkind.lustre.Expr;
+
+/**
+ * A verdict stored in the proof cache. Valid results record the k and the
+ * invariants they were proven with. Invalid results record the length of the
+ * counterexample, which is recomputed when the result is used.
+ */
+public class CachedResult {
+	public final boolean valid;
+	public final int k;
+	public final List<Expr> invariants;
+
+	public CachedResult(boolean valid, int k, List<Expr> invariants) {
+		this.valid = valid;
+		this.k = k;
+		this.invariants = invariants;
+	}
+}
@@ -0,0 +1,148 @@
+package jkind.cache;
+
+import static jkind.lustre.LustreUtil.and;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import jkind.ExitCodes;
+import jkind.Main;
+import jkind.StdErr;
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BinaryOp;
+import jkind.lustre.BoolExpr;
+import jkind.lustre.Expr;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.util.Util;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+
+/**
+ * Persistent store of PDR checkpoints, one file per PDR instance. An
+ * instance is keyed by a hash of the node it checks, which is sliced to its
+ * properties, so a checkpoint is only resumed for the same properties of an
+ * unchanged model. Entries are Lustre text in the same form as advice files,
+ * except that assertions are kept in order and with duplicates: the
+ * predicates followed by one assertion per cube, frame by frame, with a
+ * comment giving the size of each group.
+ */
+public class CheckpointStore {
+	private static final String HEADER = "-- pdr";
+
+	private final File directory;
+
+	public CheckpointStore(String directory) {
+		this.directory = new File(directory);
+
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			StdErr.fatal(ExitCodes.INVALID_OPTIONS, "unable to create PDR checkpoint directory: "
+					+ directory);
+		}
+	}
+
+	/**
+	 * Returns the checkpoint for the node, or null if there is none.
+	 * Unreadable entries are treated as missing.
+	 */
+	public PdrCheckpoint load(Node node) {
+		File file = getFile(node);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			String text = new String(bytes, StandardCharsets.UTF_8);
+			String[] header = text.substring(0, text.indexOf('\n')).split(" ");
+			if (!(header[0] + " " + header[1]).equals(HEADER)) {
+				return null;
+			}
+
+			Program program = Main.parseLustre(new ANTLRInputStream(text));
+			Iterator<Expr> exprs = program.getMainNode().assertions.iterator();
+
+			PdrCheckpoint checkpoint = new PdrCheckpoint();
+			int predicates = Integer.parseInt(header[2]);
+			for (int i = 0; i < predicates; i++) {
+				checkpoint.predicates.add(exprs.next());
+			}
+			for (int f = 3; f < header.length - 1; f++) {
+				checkpoint.frames.add(decodeCubes(exprs, Integer.parseInt(header[f])));
+			}
+			checkpoint.inf.addAll(decodeCubes(exprs, Integer.parseInt(header[header.length - 1])));
+			return checkpoint;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	public void store(Node node, PdrCheckpoint checkpoint) {
+		NodeBuilder builder = new NodeBuilder("main");
+		builder.addLocals(Util.getVarDecls(node));
+		builder.addAssertions(checkpoint.predicates);
+
+		StringBuilder header = new StringBuilder(HEADER);
+		header.append(" ").append(checkpoint.predicates.size());
+		for (List<List<Expr>> frame : checkpoint.frames) {
+			header.append(" ").append(frame.size());
+			encodeCubes(builder, frame);
+		}
+		header.append(" ").append(checkpoint.inf.size());
+		encodeCubes(builder, checkpoint.inf);
+
+		String text = header + "\n" + new Program(builder.build());
+		File file = getFile(node);
+		try {
+			/* Write then rename so a run never resumes from a partial entry */
+			File temp = File.createTempFile(file.getName(), ".tmp", directory);
+			Files.write(temp.toPath(), text.getBytes(StandardCharsets.UTF_8));
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			StdErr.warning("unable to write PDR checkpoint: " + e.getMessage());
+		}
+	}
+
+	/** Remove the checkpoint for a node whose properties have been decided */
+	public void delete(Node node) {
+		getFile(node).delete();
+	}
+
+	private static void encodeCubes(NodeBuilder builder, List<List<Expr>> cubes) {
+		for (List<Expr> cube : cubes) {
+			builder.addAssertion(and(cube));
+		}
+	}
+
+	private static List<List<Expr>> decodeCubes(Iterator<Expr> exprs, int count) {
+		List<List<Expr>> cubes = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			List<Expr> literals = new ArrayList<>();
+			addConjuncts(exprs.next(), literals);
+			cubes.add(literals);
+		}
+		return cubes;
+	}
+
+	private static void addConjuncts(Expr expr, List<Expr> conjuncts) {
+		if (expr instanceof BinaryExpr && ((BinaryExpr) expr).op == BinaryOp.AND) {
+			BinaryExpr be = (BinaryExpr) expr;
+			addConjuncts(be.left, conjuncts);
+			addConjuncts(be.right, conjuncts);
+		} else if (!(expr instanceof BoolExpr && ((BoolExpr) expr).value)) {
+			conjuncts.add(expr);
+		}
+	}
+
+	private File getFile(Node node) {
+		return new File(directory, ProofCache.hash(node.toString()) + ".pdr.lus");
+	}
+}
@@ -0,0 +1,33 @@
+package jkind.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jkind.lustre.Expr;
+
+/**
+ * The state of a PDR instance at the start of a frame: its predicates, the
+ * cubes blocked at each frame from 1 up to the current depth, and the cubes
+ * blocked at FRAME_INF. Cubes are lists of literals over the current state,
+ * excluding the non-initial literal.
+ */
+public class PdrCheckpoint {
+	public final List<Expr> predicates;
+	public final List<List<List<Expr>>> frames;
+	public final List<List<Expr>> inf;
+
+	public PdrCheckpoint(List<Expr> predicates, List<List<List<Expr>>> frames,
+			List<List<Expr>> inf) {
+		this.predicates = predicates;
+		this.frames = frames;
+		this.inf = inf;
+	}
+
+	public PdrCheckpoint() {
+		this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+	}
+
+	public int getDepth() {
+		return frames.size();
+	}
+}
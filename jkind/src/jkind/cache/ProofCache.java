@@ -0,0 +1,130 @@
+package jkind.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jkind.ExitCodes;
+import jkind.JKindException;
+import jkind.StdErr;
+import jkind.advice.Advice;
+import jkind.advice.AdviceEncoder;
+import jkind.lustre.Expr;
+import jkind.lustre.Node;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.slicing.DependencyMap;
+import jkind.slicing.LustreSlicer;
+import jkind.util.Util;
+
+/**
+ * Persistent store of verdicts, one file per property. A property is keyed
+ * by a hash of the node sliced to its cone of influence, so an entry remains
+ * usable as long as nothing the property depends on has changed. Entries
+ * are Lustre text in the same form as advice files, preceded by a comment
+ * with the verdict.
+ */
+public class ProofCache {
+	private static final String VALID = "valid";
+	private static final String INVALID = "invalid";
+
+	private final File directory;
+	private final Node node;
+	private final Map<String, Node> slices = new HashMap<>();
+
+	public ProofCache(String directory, Node node) {
+		this.directory = new File(directory);
+		this.node = node;
+
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			StdErr.fatal(ExitCodes.INVALID_OPTIONS, "unable to create proof cache directory: "
+					+ directory);
+		}
+	}
+
+	/**
+	 * Returns the cached result for the property, or null if there is none.
+	 * Unreadable entries are treated as missing.
+	 */
+	public CachedResult lookup(String property) {
+		File file = getFile(property);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			String text = new String(bytes, StandardCharsets.UTF_8);
+			String[] header = text.substring(0, text.indexOf('\n')).split(" ");
+			boolean valid = header[1].equals(VALID);
+			int k = Integer.parseInt(header[2]);
+
+			Advice advice = AdviceEncoder.decode(new ByteArrayInputStream(bytes));
+			advice.prune(getSlice(property));
+			return new CachedResult(valid, k, advice.getInvariants());
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	public void storeValid(String property, int k, List<Expr> invariants) {
+		store(property, VALID, k, invariants);
+	}
+
+	public void storeInvalid(String property, int length) {
+		store(property, INVALID, length, Collections.emptyList());
+	}
+
+	private void store(String property, String verdict, int k, List<Expr> invariants) {
+		Node slice = getSlice(property);
+		Advice advice = new Advice();
+		advice.addVarDecls(Util.getVarDecls(slice));
+		advice.addInvariants(invariants);
+		advice.prune(slice);
+
+		String text = "-- " + verdict + " " + k + "\n" + AdviceEncoder.encode(advice);
+		File file = getFile(property);
+		try {
+			/* Write then rename so concurrent runs never see a partial entry */
+			File temp = File.createTempFile(file.getName(), ".tmp", directory);
+			Files.write(temp.toPath(), text.getBytes(StandardCharsets.UTF_8));
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			StdErr.warning("unable to write proof cache entry: " + e.getMessage());
+		}
+	}
+
+	private File getFile(String property) {
+		return new File(directory, hash(getSlice(property).toString()) + ".lus");
+	}
+
+	private Node getSlice(String property) {
+		return slices.computeIfAbsent(property, p -> {
+			Node single = new NodeBuilder(node).clearProperties().addProperty(p).clearIvc()
+					.build();
+			return LustreSlicer.slice(single, new DependencyMap(single, single.properties));
+		});
+	}
+
+	static String hash(String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder result = new StringBuilder();
+			for (byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+				result.append(String.format("%02x", b));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new JKindException("Unable to hash node", e);
+		}
+	}
+}
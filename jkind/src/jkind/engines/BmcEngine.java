@@ -20,9 +20,20 @@ import jkind.util.StreamIndex;
 public class BmcEngine extends SolverBasedEngine {
 	public static final String NAME = "bmc";
 	private List<String> validProperties = new ArrayList<>();
+	private final ParallelBmcEngine parent;
+	private final String scratchBase;
 
 	public BmcEngine(Specification spec, JKindSettings settings, Director director) {
 		super(NAME, spec, settings, director);
+		this.parent = null;
+		this.scratchBase = super.getScratchBase();
+	}
+
+	public BmcEngine(Specification spec, JKindSettings settings, Director director,
+			ParallelBmcEngine parent, String scratchBase) {
+		super(NAME, spec, settings, director);
+		this.parent = parent;
+		this.scratchBase = scratchBase;
 	}
 
 	@Override
@@ -75,7 +86,11 @@ public class BmcEngine extends SolverBasedEngine {
 	}
 
 	private void sendBaseStep(int k) {
-		director.broadcast(new BaseStepMessage(k + 1, properties));
+		if (parent != null) {
+			parent.reportBaseStep(this, k + 1, properties);
+		} else {
+			director.broadcast(new BaseStepMessage(k + 1, properties));
+		}
 	}
 
 	private void sendUnknown(List<String> unknown) {
@@ -116,7 +131,19 @@ public class BmcEngine extends SolverBasedEngine {
 
 	@Override
 	protected void handleMessage(ValidMessage vm) {
-		properties.removeAll(vm.valid);
-		validProperties.addAll(vm.valid);
+		List<String> valid = intersect(vm.valid, spec.node.properties);
+		properties.removeAll(valid);
+		validProperties.addAll(valid);
+	}
+
+	private List<String> intersect(List<String> list1, List<String> list2) {
+		List<String> result = new ArrayList<>(list1);
+		result.retainAll(list2);
+		return result;
+	}
+
+	@Override
+	protected String getScratchBase() {
+		return scratchBase;
 	}
 }
@@ -1,14 +1,20 @@
 package jkind.engines;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import jkind.ExitCodes;
 import jkind.JKindException;
@@ -18,7 +24,10 @@ import jkind.StdErr;
 import jkind.advice.Advice;
 import jkind.advice.AdviceReader;
 import jkind.advice.AdviceWriter;
+import jkind.cache.ProofCache;
+import jkind.engines.invariant.CandidateGenerator;
 import jkind.engines.invariant.GraphInvariantGenerationEngine;
+import jkind.engines.invariant.LemmaStore;
 import jkind.engines.ivcs.AllIvcsExtractorEngine; 
 import jkind.engines.ivcs.IvcReductionEngine;
 import jkind.engines.ivcs.IvcUtil; 
@@ -30,18 +39,20 @@ import jkind.engines.messages.InvariantMessage;
 import jkind.engines.messages.Itinerary;
 import jkind.engines.messages.Message;
 import jkind.engines.messages.MessageHandler;
-import jkind.engines.messages.StopMessage;
 import jkind.engines.messages.UnknownMessage;
 import jkind.engines.messages.ValidMessage;
 import jkind.engines.pdr.PdrEngine;
 import jkind.lustre.Expr;
+import jkind.lustre.builders.NodeBuilder;
 import jkind.results.Counterexample;
 import jkind.results.layout.NodeLayout;
+import jkind.sexp.Symbol;
 import jkind.slicing.ModelSlicer;
 import jkind.solvers.Model;
 import jkind.translation.Specification;
 import jkind.util.CounterexampleExtractor;
 import jkind.util.ModelReconstructionEvaluator;
+import jkind.util.StreamIndex;
 import jkind.util.Tuple;
 import jkind.util.Util;
 import jkind.writers.ConsoleWriter;
@@ -61,14 +72,36 @@ public class Director extends MessageHandler {
 	private final List<String> remainingProperties = new ArrayList<>();
 	private final List<String> validProperties = new ArrayList<>();
 	private final List<String> invalidProperties = new ArrayList<>();
-	private int baseStep = 0;
+	private final Map<String, Integer> baseSteps = new HashMap<>();
 	private final Map<String, InductiveCounterexampleMessage> inductiveCounterexamples = new HashMap<>();
 
-	private final List<Engine> engines = new ArrayList<>();
+	private final List<Engine> engines = new CopyOnWriteArrayList<>();
 	private final List<Thread> threads = new ArrayList<>();
+	private final AtomicInteger runningEngines = new AtomicInteger();
+
+	/*
+	 * The director blocks until a message arrives, an engine finishes, or the
+	 * timeout expires. Standard input cannot be waited on alongside these, so
+	 * exit requests are checked at this interval.
+	 */
+	private static final long EXIT_REQUEST_POLL_MILLIS = 100;
 
 	private Advice inputAdvice;
 	private AdviceWriter adviceWriter;
+	private ProofCache proofCache;
+	private final LemmaStore lemmaStore = new LemmaStore();
+
+	/* Shared with MiniJKind runs, and drained by the run which created it */
+	private final SolverPool solverPool;
+	private final boolean ownsSolverPool;
+
+	/* Specification given to the engines, without the properties answered by the proof cache */
+	private Specification engineSpec;
+
+	/* Empty unless properties are analyzed in clusters */
+	private final Map<String, PropertyCluster> clusterByVariable = new HashMap<>();
+	private final Deque<PropertyCluster> pendingClusters = new ArrayDeque<>();
+	private final List<PropertyCluster> runningClusters = new ArrayList<>();
 
 	private MiniJKind miniJkind;
 
@@ -77,6 +110,8 @@ public class Director extends MessageHandler {
 		this.userSpec = userSpec;
 		this.analysisSpec = analysisSpec;
 		this.miniJkind = null;
+		this.solverPool = new SolverPool();
+		this.ownsSolverPool = true;
 		this.writer = getWriter();
 		this.startTime = System.currentTimeMillis();
 		this.remainingProperties.addAll(analysisSpec.node.properties);
@@ -90,6 +125,10 @@ public class Director extends MessageHandler {
 			this.adviceWriter.addVarDecls(Util.getVarDecls(analysisSpec.node));
 		}
 
+		if (settings.proofCache != null && !settings.miniJkind) {
+			this.proofCache = new ProofCache(settings.proofCache, analysisSpec.node);
+		}
+
 		initializeUnknowns(settings, analysisSpec.node.properties);
 	}
 
@@ -98,6 +137,8 @@ public class Director extends MessageHandler {
 		this.userSpec = userSpec;
 		this.analysisSpec = analysisSpec;
 		this.miniJkind = miniJkind;
+		this.ownsSolverPool = miniJkind.getSolverPool() == null;
+		this.solverPool = ownsSolverPool ? new SolverPool() : miniJkind.getSolverPool();
 		this.writer = getWriter();
 		this.startTime = System.currentTimeMillis();
 		this.remainingProperties.addAll(analysisSpec.node.properties);
@@ -111,6 +152,10 @@ public class Director extends MessageHandler {
 			this.adviceWriter.addVarDecls(Util.getVarDecls(analysisSpec.node));
 		}
 
+		if (settings.proofCache != null && !settings.miniJkind) {
+			this.proofCache = new ProofCache(settings.proofCache, analysisSpec.node);
+		}
+
 		initializeUnknowns(settings, analysisSpec.node.properties);
 	}
 	 
@@ -138,13 +183,18 @@ public class Director extends MessageHandler {
 			printHeader();
 		}
 		writer.begin();
+		if (ownsSolverPool) {
+			clearSharedTables();
+		}
 		addShutdownHook();
-		createAndStartEngines();
+		if (checkProofCache()) {
+			createAndStartEngines();
+		}
 
-		while (!timeout() && propertiesRemaining() && someThreadAlive() && !someEngineFailed()
-				&& !exitRequested()) {
-			processMessages();
-			sleep(100);
+		while (!timeout() && propertiesRemaining() && (someThreadAlive() || someClusterPending())
+				&& !someEngineFailed() && !exitRequested()) {
+			processMessagesAndWait(Math.min(getRemainingTime(), EXIT_REQUEST_POLL_MILLIS));
+			scheduleClusters();
 		} 
 		
 		processMessages();
@@ -158,9 +208,22 @@ public class Director extends MessageHandler {
 		if (settings.miniJkind) {
 			stopEngines(); 
 		}
+		if (ownsSolverPool) {
+			solverPool.drain();
+		}
 		return exitCode;
 	}
 
+	/**
+	 * Symbols are shared through global tables of bounded size, which are
+	 * cleared for each run so that models analyzed earlier in the same JVM do
+	 * not fill them
+	 */
+	private static void clearSharedTables() {
+		Symbol.clearInterned();
+		StreamIndex.clearEncodings();
+	}
+
 	private boolean exitRequested() {
 		try {
 			while (System.in.available() > 0) {
@@ -202,52 +265,169 @@ public class Director extends MessageHandler {
 		}
 	}
 
+	/**
+	 * Answer the properties whose cached results can be re-checked, so that
+	 * engines are only started for the rest. The proof cache engine runs like
+	 * any other engine, under the timeout. Returns false if the run should end
+	 * without starting the other engines.
+	 */
+	private boolean checkProofCache() {
+		engineSpec = analysisSpec;
+		if (proofCache == null) {
+			return true;
+		}
+
+		Engine engine = new ProofCacheEngine(analysisSpec, settings, this, proofCache);
+		addEngine(engine).start();
+		boolean exit = false;
+		while (!timeout() && propertiesRemaining() && someThreadAlive() && !someEngineFailed()
+				&& !(exit = exitRequested())) {
+			processMessagesAndWait(Math.min(getRemainingTime(), EXIT_REQUEST_POLL_MILLIS));
+		}
+		if (someThreadAlive()) {
+			engine.stopEngine();
+		}
+		processMessages();
+
+		if (exit || timeout() || someEngineFailed()) {
+			return false;
+		}
+
+		if (remainingProperties.size() < analysisSpec.node.properties.size()) {
+			NodeBuilder builder = new NodeBuilder(analysisSpec.node).clearProperties();
+			engineSpec = new Specification(builder.addProperties(remainingProperties).build(),
+					settings.slicing);
+		}
+		return true;
+	}
+
 	private void createAndStartEngines() {
-		createEngines();
-		threads.forEach(Thread::start);
+		if (remainingProperties.isEmpty()) {
+			return;
+		}
+
+		if (settings.clusters > 0) {
+			List<PropertyCluster> clusters = PropertyCluster.partition(engineSpec.node.properties,
+					engineSpec.dependencyMap, clusterByVariable);
+			if (clusters.size() > 1) {
+				pendingClusters.addAll(clusters);
+				scheduleClusters();
+				return;
+			}
+			clusterByVariable.clear();
+		}
+
+		startEngines(createEngines(engineSpec));
 	}
 
-	private void createEngines() {
+	/**
+	 * Retire clusters whose properties have all been answered or whose engines
+	 * have all finished, and start pending clusters in their place. Answers
+	 * are only recorded once post-processing is done, so the engines of an
+	 * answered cluster have no work left and are interrupted at once.
+	 */
+	private void scheduleClusters() {
+		Iterator<PropertyCluster> iterator = runningClusters.iterator();
+		while (iterator.hasNext()) {
+			PropertyCluster cluster = iterator.next();
+			if (Collections.disjoint(cluster.properties, remainingProperties) || !cluster.isAlive()) {
+				for (Engine engine : cluster.engines) {
+					engine.stopEngine();
+				}
+				iterator.remove();
+			}
+		}
+
+		while (runningClusters.size() < settings.clusters && !pendingClusters.isEmpty()) {
+			PropertyCluster cluster = pendingClusters.remove();
+			Specification spec = cluster.createSpecification(engineSpec, settings.slicing);
+			List<Engine> clusterEngines = createEngines(spec);
+			cluster.engines.addAll(clusterEngines);
+			cluster.threads.addAll(startEngines(clusterEngines));
+			runningClusters.add(cluster);
+		}
+	}
+
+	private List<Engine> createEngines(Specification spec) {
+		List<Engine> result = new ArrayList<>();
 		if (settings.boundedModelChecking) {
-			addEngine(new BmcEngine(analysisSpec, settings, this));
+			if (settings.bmcMax > 1) {
+				result.add(new ParallelBmcEngine(spec, settings, this));
+			} else {
+				result.add(new BmcEngine(spec, settings, this));
+			}
 		}
 
 		if (settings.kInduction) {
-			addEngine(new KInductionEngine(analysisSpec, settings, this));
+			result.add(new KInductionEngine(spec, settings, this));
 		}
 
 		if (settings.invariantGeneration) {
-			addEngine(new GraphInvariantGenerationEngine(analysisSpec, settings, this));
+			CandidateGenerator generator = new CandidateGenerator(spec, settings);
+			result.add(new GraphInvariantGenerationEngine(spec, settings, this, generator, null));
+			if (settings.invGenSplit) {
+				for (String domain : CandidateGenerator.DOMAINS) {
+					result.add(new GraphInvariantGenerationEngine(spec, settings, this, generator, domain));
+				}
+			}
 		}
 
 		if (settings.smoothCounterexamples) {
-			addEngine(new SmoothingEngine(analysisSpec, settings, this));
+			result.add(new SmoothingEngine(spec, settings, this));
 		}
 
 		if (settings.intervalGeneralization) {
-			addEngine(new IntervalGeneralizationEngine(analysisSpec, settings, this));
+			result.add(new IntervalGeneralizationEngine(spec, settings, this));
 		}
 
 		if (settings.pdrMax > 0) {
-			addEngine(new PdrEngine(analysisSpec, settings, this));
+			result.add(new PdrEngine(spec, settings, this));
 		}
 
 		if (settings.readAdvice != null) {
-			addEngine(new AdviceEngine(analysisSpec, settings, this, inputAdvice));
+			result.add(new AdviceEngine(spec, settings, this, copyInputAdvice()));
 		}
 
 		if (settings.reduceIvc) {
-			addEngine(new IvcReductionEngine(analysisSpec, settings, this));
+			result.add(new IvcReductionEngine(spec, settings, this));
 		}
 
 		if (settings.allIvcs) { 
-			addEngine(new AllIvcsExtractorEngine(analysisSpec, settings, this));
+			result.add(new AllIvcsExtractorEngine(spec, settings, this));
 		} 
+		return result;
+	}
+
+	/* Each advice engine prunes its advice to its own specification */
+	private Advice copyInputAdvice() {
+		Advice advice = new Advice();
+		advice.addVarDecls(inputAdvice.getVarDecls());
+		advice.addInvariants(inputAdvice.getInvariants());
+		return advice;
+	}
+
+	private List<Thread> startEngines(List<Engine> newEngines) {
+		List<Thread> newThreads = new ArrayList<>();
+		for (Engine engine : newEngines) {
+			newThreads.add(addEngine(engine));
+		}
+		newThreads.forEach(Thread::start);
+		return newThreads;
 	}
 
-	private void addEngine(Engine engine) {
+	private Thread addEngine(Engine engine) {
 		engines.add(engine);
-		threads.add(new Thread(engine, engine.getName()));
+		runningEngines.incrementAndGet();
+		Thread thread = new Thread(() -> {
+			try {
+				engine.run();
+			} finally {
+				runningEngines.decrementAndGet();
+				wakeUp();
+			}
+		}, engine.getName());
+		threads.add(thread);
+		return thread;
 	}
 
 	private void stopEngines() {
@@ -268,8 +448,12 @@ public class Director extends MessageHandler {
 	}
 
 	private boolean timeout() {
+		return getRemainingTime() < 0;
+	}
+
+	private long getRemainingTime() {
 		long timeout = startTime + ((long) settings.timeout) * 1000;
-		return System.currentTimeMillis() > timeout;
+		return timeout - System.currentTimeMillis();
 	}
 
 	private boolean propertiesRemaining() {
@@ -277,7 +461,11 @@ public class Director extends MessageHandler {
 	}
 
 	private boolean someThreadAlive() {
-		return threads.stream().anyMatch(Thread::isAlive);
+		return runningEngines.get() > 0;
+	}
+
+	private boolean someClusterPending() {
+		return !pendingClusters.isEmpty();
 	}
 
 	private boolean someEngineFailed() {
@@ -285,12 +473,23 @@ public class Director extends MessageHandler {
 	}
 
 	private void writeUnknowns() {
-		if (!remainingProperties.isEmpty()) {
-			writer.writeUnknown(remainingProperties, baseStep, convertInductiveCounterexamples(),
+		Map<Integer, List<String>> byBaseStep = new TreeMap<>();
+		for (String prop : remainingProperties) {
+			byBaseStep.computeIfAbsent(getBaseStep(prop), step -> new ArrayList<>()).add(prop);
+		}
+
+		Map<String, Counterexample> inductiveCounterexamples = convertInductiveCounterexamples();
+		for (Entry<Integer, List<String>> entry : byBaseStep.entrySet()) {
+			writer.writeUnknown(entry.getValue(), entry.getKey(), inductiveCounterexamples,
 					getRuntime());
 		}
 	}
 
+	/* Properties in different clusters may have been checked to different depths */
+	private int getBaseStep(String prop) {
+		return baseSteps.getOrDefault(prop, 0);
+	}
+
 	private int reportFailures() {
 		int exitCode = 0;
 		for (Engine engine : engines) {
@@ -328,13 +527,42 @@ public class Director extends MessageHandler {
 		}
 	}
 
+	/**
+	 * Invariants pass through the lemma store first, so engines only receive
+	 * those not implied by an invariant already broadcast
+	 */
 	public void broadcast(Message message) {
+		if (message instanceof InvariantMessage) {
+			InvariantMessage im = (InvariantMessage) message;
+			List<Expr> fresh = lemmaStore.publish(im.invariants);
+			if (fresh.isEmpty()) {
+				return;
+			}
+			message = new InvariantMessage(fresh, im.k);
+		}
+
 		receiveMessage(message);
-		for (Engine engine : engines) {
+		for (Engine engine : getRecipients(message)) {
 			engine.receiveMessage(message);
 		}
 	}
 
+	/**
+	 * When properties are analyzed in clusters, a message only concerns the
+	 * engines of the clusters whose properties or variables it mentions
+	 */
+	private List<Engine> getRecipients(Message message) {
+		if (clusterByVariable.isEmpty()) {
+			return engines;
+		}
+
+		List<Engine> recipients = new ArrayList<>();
+		for (PropertyCluster cluster : PropertyCluster.getClusters(message, clusterByVariable)) {
+			recipients.addAll(cluster.engines);
+		}
+		return recipients;
+	}
+
 	@Override
 	protected void handleMessage(ValidMessage vm) {
 		if (vm.getNextDestination() != null) {
@@ -354,6 +582,12 @@ public class Director extends MessageHandler {
 			adviceWriter.addInvariants(vm.invariants);
 		}
 
+		if (proofCache != null && !vm.source.equals(ProofCacheEngine.NAME)) {
+			for (String prop : newValid) {
+				proofCache.storeValid(prop, vm.k, vm.invariants);
+			}
+		}
+
 		List<Expr> invariants = settings.reduceIvc ? vm.invariants : Collections.emptyList();
 
 		if((!settings.miniJkind) && (settings.reduceIvc)){
@@ -394,6 +628,12 @@ public class Director extends MessageHandler {
 		invalidProperties.addAll(newInvalid);
 		inductiveCounterexamples.keySet().removeAll(newInvalid);
 
+		if (proofCache != null && !im.source.equals(ProofCacheEngine.NAME)) {
+			for (String prop : newInvalid) {
+				proofCache.storeInvalid(prop, im.length);
+			}
+		}
+
 		double runtime = getRuntime();
 		for (String invalidProp : newInvalid) {
 			Model model = ModelSlicer.slice(im.model, analysisSpec.dependencyMap.get(invalidProp));
@@ -457,7 +697,7 @@ public class Director extends MessageHandler {
 		switch (um.source) {
 		case BmcEngine.NAME:
 			for (String prop : um.unknown) {
-				bmcUnknowns.put(prop, baseStep);
+				bmcUnknowns.put(prop, getBaseStep(prop));
 			}
 			break;
 
@@ -478,9 +718,11 @@ public class Director extends MessageHandler {
 
 	@Override
 	protected void handleMessage(BaseStepMessage bsm) {
-		baseStep = bsm.step;
+		for (String prop : bsm.properties) {
+			baseSteps.put(prop, bsm.step);
+		}
 		if (!bsm.properties.isEmpty()) {
-			writer.writeBaseStep(bsm.properties, baseStep);
+			writer.writeBaseStep(bsm.properties, bsm.step);
 		}
 	}
 
@@ -488,6 +730,14 @@ public class Director extends MessageHandler {
 	protected void handleMessage(InvariantMessage im) {
 	}
 
+	public LemmaStore getLemmaStore() {
+		return lemmaStore;
+	}
+
+	public SolverPool getSolverPool() {
+		return solverPool;
+	}
+
 	public Itinerary getValidMessageItinerary() {
 		List<EngineType> destinations = new ArrayList<>(); 
 		if (settings.reduceIvc) {
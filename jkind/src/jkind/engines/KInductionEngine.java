@@ -9,6 +9,7 @@ import java.util.Map;
 
 import jkind.JKindSettings;
 import jkind.engines.invariant.InvariantSet; 
+import jkind.engines.invariant.LemmaStore;
 import jkind.engines.messages.BaseStepMessage;
 import jkind.engines.messages.InductiveCounterexampleMessage;
 import jkind.engines.messages.InvalidMessage;
@@ -21,13 +22,13 @@ import jkind.lustre.Expr;
 import jkind.lustre.IdExpr;
 import jkind.sexp.Cons;
 import jkind.sexp.Sexp;
+import jkind.sexp.Symbol;
 import jkind.solvers.Model;
 import jkind.solvers.Result;
 import jkind.solvers.SatResult;
 import jkind.solvers.UnknownResult;
 import jkind.solvers.UnsatResult;
 import jkind.translation.Specification;
-import jkind.util.SexpUtil;
 import jkind.util.StreamIndex;
 
 public class KInductionEngine extends SolverBasedEngine {
@@ -37,6 +38,14 @@ public class KInductionEngine extends SolverBasedEngine {
 	private InvariantSet invariants = new InvariantSet();
 	private Map<Integer, List<String>> baseStepValid = new HashMap<>();
 
+	/*
+	 * Each property is asserted once at each hypothesis step, guarded by an
+	 * activation literal. Queries then only send the literals for the
+	 * properties still possibly valid rather than the unrolled hypothesis.
+	 */
+	private final Map<String, List<Symbol>> hypothesisLiterals = new HashMap<>();
+	private int hypothesisCount = 0;
+
 	public KInductionEngine(Specification spec, JKindSettings settings, Director director) {
 		super(NAME, spec, settings, director);
 	}
@@ -47,6 +56,9 @@ public class KInductionEngine extends SolverBasedEngine {
 		for (kCurrent = 0; kCurrent <= settings.n; kCurrent++) {
 			comment("K = " + kCurrent);
 			processMessagesAndWait();
+			if (properties.isEmpty()) {
+				return;
+			}
 			pruneUnknownProperties(kCurrent);
 			createVariables(kCurrent);
 			assertTransitionAndInvariants(kCurrent);
@@ -59,7 +71,7 @@ public class KInductionEngine extends SolverBasedEngine {
 	}
 
 	private void processMessagesAndWait() {
-		processMessagesAndWaitUntil(() -> kCurrent <= kLimit);
+		processMessagesAndWaitUntil(() -> kCurrent <= kLimit || properties.isEmpty());
 	}
 
 	private void pruneUnknownProperties(int kCurrent) {
@@ -85,7 +97,8 @@ public class KInductionEngine extends SolverBasedEngine {
 		List<String> possiblyValid = new ArrayList<>(properties);
 
 		while (!possiblyValid.isEmpty()) {
-			Result result = solver.query(getInductiveQuery(k, possiblyValid));
+			Result result = solver.query(getHypotheses(k, possiblyValid),
+					StreamIndex.conjoinEncodings(possiblyValid, k));
 
 			if (result instanceof SatResult || result instanceof UnknownResult) {
 				Model model = getModel(result);
@@ -123,22 +136,44 @@ public class KInductionEngine extends SolverBasedEngine {
 	}
 
 	private void assertInvariants(List<Expr> invariants, int i) {
-		solver.assertSexp(SexpUtil.conjoinInvariants(invariants, i));
+		solver.assertInvariants(invariants, i);
 	}
 
 	private void assertTransitionAndInvariants(int k) {
+		dropRetiredInvariants();
 		assertInductiveTransition(k);
 		assertInvariants(invariants.getInvariants(), k);
 	}
 
-	private Sexp getInductiveQuery(int k, List<String> possiblyValid) {
-		List<Sexp> hyps = new ArrayList<>();
-		for (int i = 0; i < k; i++) {
-			hyps.add(StreamIndex.conjoinEncodings(possiblyValid, i));
+	/**
+	 * Invariants retired by the lemma store are no longer asserted at new
+	 * steps, but only once this engine holds a stronger invariant which is
+	 * still current. The replacement may not have arrived yet, or may have
+	 * been left out as unsupported by the solver.
+	 */
+	private void dropRetiredInvariants() {
+		LemmaStore store = director.getLemmaStore();
+		List<Expr> current = invariants.getInvariants().stream()
+				.filter(inv -> !store.isRetired(inv)).collect(toList());
+		invariants.removeIf(inv -> store.isRetired(inv)
+				&& current.stream().anyMatch(other -> LemmaStore.subsumes(other, inv)));
+	}
+
+	private List<Symbol> getHypotheses(int k, List<String> possiblyValid) {
+		List<Symbol> result = new ArrayList<>();
+		for (String property : possiblyValid) {
+			List<Symbol> literals = hypothesisLiterals.computeIfAbsent(property,
+					p -> new ArrayList<>());
+			while (literals.size() < k) {
+				int i = literals.size();
+				Symbol literal = solver.createActivationLiteral("hyp", hypothesisCount++);
+				Sexp hyp = StreamIndex.encode(property, i);
+				solver.assertSexp(new Cons("=>", literal, hyp));
+				literals.add(literal);
+			}
+			result.addAll(literals.subList(0, k));
 		}
-		Sexp conc = StreamIndex.conjoinEncodings(possiblyValid, k);
-
-		return new Cons("=>", SexpUtil.conjoin(hyps), conc);
+		return result;
 	}
 
 	private void sendValid(List<String> valid, int k) {
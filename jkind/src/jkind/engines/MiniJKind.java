@@ -29,9 +29,19 @@ public class MiniJKind extends Engine {
 	private Counterexample invalidModel; 
 	private double runtime;
 	private String status = NOT_YET_CHECKED; 
+	private final SolverPool solverPool;
     
 	public MiniJKind(Specification spec, JKindSettings settings) {
+		this(spec, settings, null);
+	}
+
+	/**
+	 * Solvers are reused through the given pool, which the caller drains once
+	 * done with it. Without a pool, the run uses a pool of its own.
+	 */
+	public MiniJKind(Specification spec, JKindSettings settings, SolverPool solverPool) {
 		super(NAME, spec, settings, null); 
+		this.solverPool = solverPool;
 		
 		if (spec.node.properties.size() != 1) {
 			throw new IllegalArgumentException("MiniJKind Expects exactly one property");
@@ -74,6 +84,10 @@ public class MiniJKind extends Engine {
 		status = VALID; 
 	}
 	
+	public SolverPool getSolverPool() {
+		return solverPool;
+	}
+
 	public ValidMessage getValidMessage() {
 		return validMessage;
 	}
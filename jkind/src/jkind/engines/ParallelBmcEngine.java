@@ -0,0 +1,146 @@
+package jkind.engines;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jkind.JKindSettings;
+import jkind.engines.messages.BaseStepMessage;
+import jkind.engines.messages.InductiveCounterexampleMessage;
+import jkind.engines.messages.InvalidMessage;
+import jkind.engines.messages.InvariantMessage;
+import jkind.engines.messages.Message;
+import jkind.engines.messages.UnknownMessage;
+import jkind.engines.messages.ValidMessage;
+import jkind.lustre.Node;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.slicing.PropertyPartitioner;
+import jkind.translation.Specification;
+
+/**
+ * Runs bounded model checking in several worker engines, each with its own
+ * solver and an unrolling of only the part of the specification relevant to
+ * its properties. Base steps reported by the workers are combined so that
+ * other engines see a single frontier, as if from one BMC engine.
+ */
+public class ParallelBmcEngine extends Engine {
+	private final List<BmcEngine> workers = new ArrayList<>();
+	private final List<BmcEngine> running = new ArrayList<>();
+	private final Map<BmcEngine, Map<Integer, List<String>>> reports = new HashMap<>();
+	private int baseStep = 0;
+
+	public ParallelBmcEngine(Specification spec, JKindSettings settings, Director director) {
+		super(BmcEngine.NAME, spec, settings, director);
+
+		int max = Math.min(settings.bmcMax, Runtime.getRuntime().availableProcessors());
+		int scratchCounter = 1;
+		for (List<String> group : PropertyPartitioner.partition(properties, spec.dependencyMap, max)) {
+			Node node = new NodeBuilder(spec.node).clearProperties().addProperties(group).build();
+			Specification groupSpec = new Specification(node, settings.slicing);
+			String scratch = settings.scratch ? getScratchBase() + scratchCounter++ : null;
+			BmcEngine worker = new BmcEngine(groupSpec, settings, director, this, scratch);
+			workers.add(worker);
+			running.add(worker);
+			reports.put(worker, new HashMap<>());
+		}
+	}
+
+	@Override
+	protected void main() {
+		for (BmcEngine worker : workers) {
+			new Thread(() -> {
+				try {
+					worker.run();
+				} finally {
+					reportFinished(worker);
+				}
+			}, worker.getName() + "-" + (workers.indexOf(worker) + 1)).start();
+		}
+
+		processMessagesAndWaitUntil(this::done);
+	}
+
+	private synchronized boolean done() {
+		return running.isEmpty();
+	}
+
+	public synchronized void reportBaseStep(BmcEngine worker, int step, List<String> valid) {
+		reports.get(worker).put(step, new ArrayList<>(valid));
+		advanceBaseStep();
+	}
+
+	private synchronized void reportFinished(BmcEngine worker) {
+		if (worker.getThrowable() != null && throwable == null) {
+			throwable = worker.getThrowable();
+		}
+		running.remove(worker);
+		reports.remove(worker);
+		advanceBaseStep();
+		wakeUp();
+	}
+
+	/**
+	 * A step is complete once every running worker has reached it. Workers
+	 * which have finished have no properties left to contribute.
+	 */
+	private void advanceBaseStep() {
+		while (!running.isEmpty()) {
+			int next = baseStep + 1;
+			List<String> valid = new ArrayList<>();
+			for (BmcEngine worker : running) {
+				List<String> workerValid = reports.get(worker).get(next);
+				if (workerValid == null) {
+					return;
+				}
+				valid.addAll(workerValid);
+			}
+
+			for (BmcEngine worker : running) {
+				reports.get(worker).remove(next);
+			}
+			baseStep = next;
+			director.broadcast(new BaseStepMessage(baseStep, valid));
+		}
+	}
+
+	private void forward(Message message) {
+		for (BmcEngine worker : workers) {
+			worker.receiveMessage(message);
+		}
+	}
+
+	@Override
+	protected void handleMessage(BaseStepMessage bsm) {
+	}
+
+	@Override
+	protected void handleMessage(InductiveCounterexampleMessage icm) {
+	}
+
+	@Override
+	protected void handleMessage(InvalidMessage im) {
+		forward(im);
+	}
+
+	@Override
+	protected void handleMessage(InvariantMessage im) {
+	}
+
+	@Override
+	protected void handleMessage(UnknownMessage um) {
+	}
+
+	@Override
+	protected void handleMessage(ValidMessage vm) {
+		forward(vm);
+	}
+
+	@Override
+	public void stopEngine() {
+		for (BmcEngine worker : workers) {
+			worker.stopEngine();
+		}
+		super.stopEngine();
+	}
+}
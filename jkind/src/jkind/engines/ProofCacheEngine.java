@@ -0,0 +1,181 @@
+package jkind.engines;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import jkind.JKindSettings;
+import jkind.cache.CachedResult;
+import jkind.cache.ProofCache;
+import jkind.engines.messages.BaseStepMessage;
+import jkind.engines.messages.InductiveCounterexampleMessage;
+import jkind.engines.messages.InvalidMessage;
+import jkind.engines.messages.InvariantMessage;
+import jkind.engines.messages.Itinerary;
+import jkind.engines.messages.UnknownMessage;
+import jkind.engines.messages.ValidMessage;
+import jkind.lustre.Expr;
+import jkind.lustre.IdExpr;
+import jkind.sexp.Sexp;
+import jkind.solvers.Model;
+import jkind.solvers.Result;
+import jkind.solvers.SatResult;
+import jkind.solvers.UnsatResult;
+import jkind.translation.Specification;
+import jkind.util.SexpUtil;
+import jkind.util.StreamIndex;
+
+/**
+ * Re-checks results from the proof cache before the other engines start.
+ * Cached valid properties are confirmed with a single base and inductive
+ * query over the properties and their cached invariants. A cached invalid
+ * property is confirmed by finding a new counterexample of the cached
+ * length. Results which no longer hold are left to the other engines.
+ */
+public class ProofCacheEngine extends SolverBasedEngine {
+	public static final String NAME = "proof-cache";
+	private final ProofCache cache;
+	private int created = -2;
+
+	public ProofCacheEngine(Specification spec, JKindSettings settings, Director director,
+			ProofCache cache) {
+		super(NAME, spec, settings, director);
+		this.cache = cache;
+	}
+
+	@Override
+	protected void main() {
+		Map<String, CachedResult> valid = new LinkedHashMap<>();
+		for (String property : properties) {
+			CachedResult cached = cache.lookup(property);
+			if (cached == null) {
+				continue;
+			}
+
+			if (cached.valid) {
+				valid.put(property, cached);
+			} else {
+				checkInvalid(property, cached);
+			}
+		}
+
+		/*
+		 * Properties are often proven together, each relying on the others as
+		 * hypotheses, so they are first re-checked together
+		 */
+		if (valid.size() > 1 && checkValid(valid)) {
+			return;
+		}
+		for (Entry<String, CachedResult> entry : valid.entrySet()) {
+			checkValid(Collections.singletonMap(entry.getKey(), entry.getValue()));
+		}
+	}
+
+	private boolean checkValid(Map<String, CachedResult> cached) {
+		int k = 1;
+		Set<Expr> conditions = new LinkedHashSet<>();
+		for (Entry<String, CachedResult> entry : cached.entrySet()) {
+			k = Math.max(k, entry.getValue().k);
+			conditions.add(new IdExpr(entry.getKey()));
+		}
+		for (CachedResult result : cached.values()) {
+			conditions.addAll(result.invariants);
+		}
+		createVariablesUpTo(k);
+
+		solver.push();
+		for (int i = 0; i < k; i++) {
+			assertBaseTransition(i);
+		}
+		Result base = solver.query(conjoinSteps(conditions, k));
+		solver.pop();
+		if (!(base instanceof UnsatResult)) {
+			return false;
+		}
+
+		solver.push();
+		for (int i = 0; i <= k; i++) {
+			assertInductiveTransition(i);
+		}
+		for (int i = 0; i < k; i++) {
+			solver.assertInvariants(conditions, i);
+		}
+		Result step = solver.queryInvariants(conditions, k);
+		solver.pop();
+		if (!(step instanceof UnsatResult)) {
+			return false;
+		}
+
+		for (Entry<String, CachedResult> entry : cached.entrySet()) {
+			CachedResult result = entry.getValue();
+			Itinerary itinerary = director.getValidMessageItinerary();
+			director.broadcast(new ValidMessage(getName(), entry.getKey(), result.k, 0,
+					result.invariants, null, itinerary, null));
+		}
+		return true;
+	}
+
+	private void checkInvalid(String property, CachedResult cached) {
+		int length = cached.k;
+		createVariablesUpTo(length - 1);
+
+		solver.push();
+		for (int i = 0; i < length; i++) {
+			assertBaseTransition(i);
+		}
+		Result result = solver.query(StreamIndex.encode(property, length - 1));
+		solver.pop();
+		if (!(result instanceof SatResult)) {
+			return;
+		}
+
+		Model model = ((SatResult) result).getModel();
+		Itinerary itinerary = director.getInvalidMessageItinerary();
+		director.broadcast(new InvalidMessage(getName(), property, length, model, itinerary));
+	}
+
+	private void createVariablesUpTo(int k) {
+		while (created < k) {
+			created++;
+			createVariables(created);
+		}
+	}
+
+	private Sexp conjoinSteps(Collection<Expr> conditions, int k) {
+		List<Sexp> conjuncts = new ArrayList<>();
+		for (int i = 0; i < k; i++) {
+			conjuncts.add(SexpUtil.conjoinInvariants(conditions, i));
+		}
+		return SexpUtil.conjoin(conjuncts);
+	}
+
+	@Override
+	protected void handleMessage(BaseStepMessage bsm) {
+	}
+
+	@Override
+	protected void handleMessage(InductiveCounterexampleMessage icm) {
+	}
+
+	@Override
+	protected void handleMessage(InvalidMessage im) {
+	}
+
+	@Override
+	protected void handleMessage(InvariantMessage im) {
+	}
+
+	@Override
+	protected void handleMessage(UnknownMessage um) {
+	}
+
+	@Override
+	protected void handleMessage(ValidMessage vm) {
+	}
+}
@@ -0,0 +1,97 @@
+package jkind.engines;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jkind.engines.messages.BaseStepMessage;
+import jkind.engines.messages.InductiveCounterexampleMessage;
+import jkind.engines.messages.InvalidMessage;
+import jkind.engines.messages.InvariantMessage;
+import jkind.engines.messages.Message;
+import jkind.engines.messages.UnknownMessage;
+import jkind.engines.messages.ValidMessage;
+import jkind.lustre.Expr;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.slicing.Dependency;
+import jkind.slicing.DependencyMap;
+import jkind.slicing.DependencyVisitor;
+import jkind.translation.Specification;
+
+/**
+ * Properties whose cones of influence overlap. Each cluster is analyzed by
+ * its own group of engines over a specification sliced to just its
+ * properties, so each solver holds only part of the transition relation.
+ */
+class PropertyCluster {
+	final List<String> properties;
+	final List<Engine> engines = new CopyOnWriteArrayList<>();
+	final List<Thread> threads = new ArrayList<>();
+
+	private PropertyCluster(List<String> properties) {
+		this.properties = properties;
+	}
+
+	Specification createSpecification(Specification spec, boolean slicing) {
+		NodeBuilder builder = new NodeBuilder(spec.node).clearProperties();
+		return new Specification(builder.addProperties(properties).build(), slicing);
+	}
+
+	boolean isAlive() {
+		return threads.stream().anyMatch(Thread::isAlive);
+	}
+
+	/**
+	 * Partition the properties into clusters whose cones of influence are
+	 * disjoint, recording the cluster of each variable
+	 */
+	static List<PropertyCluster> partition(List<String> properties, DependencyMap dependencyMap,
+			Map<String, PropertyCluster> clusterByVariable) {
+		List<PropertyCluster> clusters = new ArrayList<>();
+		for (List<String> group : dependencyMap.partition(properties)) {
+			PropertyCluster cluster = new PropertyCluster(group);
+			clusters.add(cluster);
+			for (Dependency dep : dependencyMap.get(group)) {
+				clusterByVariable.put(dep.name, cluster);
+			}
+		}
+		return clusters;
+	}
+
+	/**
+	 * The clusters whose properties or variables a message mentions
+	 */
+	static Set<PropertyCluster> getClusters(Message message,
+			Map<String, PropertyCluster> clusterByVariable) {
+		Set<String> names = new HashSet<>();
+		if (message instanceof ValidMessage) {
+			names.addAll(((ValidMessage) message).valid);
+		} else if (message instanceof InvalidMessage) {
+			names.addAll(((InvalidMessage) message).invalid);
+		} else if (message instanceof InductiveCounterexampleMessage) {
+			names.addAll(((InductiveCounterexampleMessage) message).properties);
+		} else if (message instanceof UnknownMessage) {
+			names.addAll(((UnknownMessage) message).unknown);
+		} else if (message instanceof BaseStepMessage) {
+			names.addAll(((BaseStepMessage) message).properties);
+		} else if (message instanceof InvariantMessage) {
+			for (Expr invariant : ((InvariantMessage) message).invariants) {
+				for (Dependency dep : DependencyVisitor.get(invariant)) {
+					names.add(dep.name);
+				}
+			}
+		}
+
+		Set<PropertyCluster> clusters = new HashSet<>();
+		for (String name : names) {
+			PropertyCluster cluster = clusterByVariable.get(name);
+			if (cluster != null) {
+				clusters.add(cluster);
+			}
+		}
+		return clusters;
+	}
+}
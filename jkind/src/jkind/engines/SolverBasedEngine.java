@@ -1,7 +1,10 @@
 package jkind.engines;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import jkind.JKindSettings;
 import jkind.engines.messages.StopMessage;
@@ -26,6 +29,14 @@ import jkind.util.Util;
 public abstract class SolverBasedEngine extends Engine {
 	protected Solver solver;
 
+	/* Non-null when the solver was taken from, and will be returned to, the pool */
+	private String poolKey;
+
+	/* Offset variables and transitions are requested repeatedly for each k */
+	private final Map<Integer, List<VarDecl>> offsetVarDecls = new HashMap<>();
+	private final Map<Integer, List<Sexp>> offsetSymbols = new HashMap<>();
+	private final Map<Sexp, Map<Integer, Sexp>> transitions = new HashMap<>();
+
 	public SolverBasedEngine(String name, Specification spec, JKindSettings settings,
 			Director director) {
 		super(name, spec, settings, director);
@@ -41,15 +52,26 @@ public abstract class SolverBasedEngine extends Engine {
 		  catch (Throwable t) {
 			throwable = t;
 		} finally {
-			killEngine();
+			releaseSolver();
 		}
 	}
 
 	protected void initializeSolver() {
+		if (!settings.scratch && settings.portfolio == null && SolverPool.supports(settings.solver)) {
+			poolKey = SolverPool.getKey(settings.solver, spec.getTransitionRelation());
+			solver = director.getSolverPool().acquire(poolKey);
+			if (solver != null) {
+				return;
+			}
+		}
+
 		solver = getSolver();
 		solver.initialize();
 		solver.define(spec.getTransitionRelation());
 		solver.define(new VarDecl(INIT.str, NamedType.BOOL));
+		if (poolKey != null) {
+			solver.markBase();
+		}
 	}
 
 	public synchronized void killEngine() {
@@ -58,14 +80,46 @@ public abstract class SolverBasedEngine extends Engine {
 			solver = null;
 		}
 	}
+
+	/**
+	 * Called from the engine thread once it is done with the solver, so the
+	 * solver is not in the middle of a command and may be reused
+	 */
+	private synchronized void releaseSolver() {
+		if (solver != null && poolKey != null && throwable == null && !solver.isInterrupted()) {
+			director.getSolverPool().release(poolKey, solver);
+			solver = null;
+		} else {
+			killEngine();
+		}
+	}
 	
+	/**
+	 * Cancel the check in progress rather than killing the solver, so the
+	 * engine ends with a StopException instead of failing in the middle of
+	 * a query. A solver which can cancel its checks stays usable and may
+	 * still be returned to the pool, others are interrupted. Synchronized
+	 * with releasing the solver, so a solver already returned to the pool is
+	 * never cancelled.
+	 */
 	@Override
 	public void stopEngine() {
-		killEngine();
+		synchronized (this) {
+			if (solver != null) {
+				if (solver.canCancelQueries()) {
+					solver.cancelQueries();
+				} else {
+					solver.interrupt();
+				}
+			}
+		}
 		receiveMessage(new StopMessage());
 	}
 	
 	protected Solver getSolver() {
+		if (settings.portfolio != null) {
+			return SolverUtil.getPortfolioSolver(settings.portfolio, getScratchBase(), spec.node);
+		}
 		return SolverUtil.getSolver(settings.solver, getScratchBase(), spec.node);
 	}
 
@@ -83,16 +137,20 @@ public abstract class SolverBasedEngine extends Engine {
 		for (VarDecl vd : Util.getVarDecls(spec.node)) {
 			Expr constraint = LustreUtil.typeConstraint(vd.id, vd.type);
 			if (constraint != null) {
-				solver.assertSexp(constraint.accept(new Lustre2Sexp(k)));
+				solver.assertExpr(constraint, k);
 			}
 		}
 	}
 
 	protected List<VarDecl> getOffsetVarDecls(int k) {
-		List<VarDecl> result = new ArrayList<>();
-		for (VarDecl vd : Util.getVarDecls(spec.node)) {
-			StreamIndex si = new StreamIndex(vd.id, k);
-			result.add(new VarDecl(si.getEncoded().str, vd.type));
+		List<VarDecl> result = offsetVarDecls.get(k);
+		if (result == null) {
+			result = new ArrayList<>();
+			for (VarDecl vd : Util.getVarDecls(spec.node)) {
+				result.add(new VarDecl(StreamIndex.encode(vd.id, k).str, vd.type));
+			}
+			result = Collections.unmodifiableList(result);
+			offsetVarDecls.put(k, result);
 		}
 		return result;
 	}
@@ -123,12 +181,31 @@ public abstract class SolverBasedEngine extends Engine {
 		return getTransition(k, Sexp.fromBoolean(init));
 	}
 
+	/**
+	 * Transitions are shared between calls, so asserting the same step again
+	 * (as invariant generation does for every k) reuses the same term
+	 */
 	protected Sexp getTransition(int k, Sexp init) {
-		List<Sexp> args = new ArrayList<>();
-		args.add(init);
-		args.addAll(getSymbols(getOffsetVarDecls(k - 1)));
-		args.addAll(getSymbols(getOffsetVarDecls(k)));
-		return new Cons(spec.getTransitionRelation().getName(), args);
+		Map<Integer, Sexp> byStep = transitions.computeIfAbsent(init, i -> new HashMap<>());
+		Sexp transition = byStep.get(k);
+		if (transition == null) {
+			List<Sexp> args = new ArrayList<>();
+			args.add(init);
+			args.addAll(getOffsetSymbols(k - 1));
+			args.addAll(getOffsetSymbols(k));
+			transition = new Cons(spec.getTransitionRelation().getName(), args);
+			byStep.put(k, transition);
+		}
+		return transition;
+	}
+
+	private List<Sexp> getOffsetSymbols(int k) {
+		List<Sexp> result = offsetSymbols.get(k);
+		if (result == null) {
+			result = Collections.unmodifiableList(getSymbols(getOffsetVarDecls(k)));
+			offsetSymbols.put(k, result);
+		}
+		return result;
 	}
 
 	protected List<Sexp> getSymbols(List<VarDecl> varDecls) {
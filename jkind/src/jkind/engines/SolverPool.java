@@ -0,0 +1,127 @@
+package jkind.engines;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import jkind.JKindException;
+import jkind.SolverOption;
+import jkind.solvers.Solver;
+import jkind.translation.Relation;
+
+/**
+ * Keeps solvers which engines have finished with so that later engines over
+ * the same transition relation (e.g., the many MiniJKind runs made during
+ * IVC computation) can reuse them instead of starting a new solver and
+ * redefining the relation. A pooled solver is reset to the state recorded by
+ * {@link Solver#markBase()} before it is handed out again.
+ *
+ * A pool belongs to the run which created it and is shared with the MiniJKind
+ * runs made on its behalf. The owner drains the pool when it finishes, after
+ * which released solvers are stopped rather than kept.
+ */
+public class SolverPool {
+	/* Bound on the number of idle solvers kept alive by the pool */
+	private static final int MAX_IDLE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/* Most recently released first */
+	private final LinkedList<Entry> idle = new LinkedList<>();
+	private boolean drained = false;
+
+	private static class Entry {
+		final String key;
+		final Solver solver;
+
+		Entry(String key, Solver solver) {
+			this.key = key;
+			this.solver = solver;
+		}
+	}
+
+	/**
+	 * Yices 1 does not scope definitions, so its solvers cannot be popped back
+	 * to their base state.
+	 */
+	public static boolean supports(SolverOption solverOption) {
+		return solverOption != SolverOption.YICES;
+	}
+
+	public static String getKey(SolverOption solverOption, Relation relation) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(relation.getName().getBytes(StandardCharsets.UTF_8));
+			digest.update(relation.getInputs().toString().getBytes(StandardCharsets.UTF_8));
+			digest.update(relation.getBody().toString().getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder key = new StringBuilder(solverOption.name()).append(":");
+			for (byte b : digest.digest()) {
+				key.append(String.format("%02x", b));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new JKindException("Unable to hash transition relation", e);
+		}
+	}
+
+	/**
+	 * Returns an idle solver previously released with the given key, or null
+	 * if there is none
+	 */
+	public synchronized Solver acquire(String key) {
+		Iterator<Entry> iterator = idle.iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.key.equals(key)) {
+				iterator.remove();
+				return entry.solver;
+			}
+		}
+		return null;
+	}
+
+	public void release(String key, Solver solver) {
+		try {
+			solver.resumeQueries();
+			solver.resetToBase();
+		} catch (Throwable t) {
+			solver.stop();
+			return;
+		}
+
+		Solver evicted = null;
+		synchronized (this) {
+			if (drained) {
+				evicted = solver;
+			} else {
+				idle.addFirst(new Entry(key, solver));
+				if (idle.size() > MAX_IDLE) {
+					evicted = idle.removeLast().solver;
+				}
+			}
+		}
+
+		if (evicted != null) {
+			evicted.stop();
+		}
+	}
+
+	/**
+	 * Stop the idle solvers, as well as any solver released from now on
+	 */
+	public void drain() {
+		List<Entry> stopping;
+		synchronized (this) {
+			drained = true;
+			stopping = new ArrayList<>(idle);
+			idle.clear();
+		}
+
+		for (Entry entry : stopping) {
+			entry.solver.stop();
+		}
+	}
+}
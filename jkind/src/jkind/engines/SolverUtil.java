@@ -1,5 +1,6 @@
 package jkind.engines;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -10,6 +11,7 @@ import jkind.analysis.LinearChecker;
 import jkind.analysis.YicesArithOnlyCheck;
 import jkind.lustre.Node;
 import jkind.lustre.builders.NodeBuilder;
+import jkind.solvers.PortfolioSolver;
 import jkind.solvers.Solver;
 import jkind.solvers.cvc4.Cvc4Solver;
 import jkind.solvers.mathsat.MathSatSolver;
@@ -37,6 +39,18 @@ public class SolverUtil {
 		throw new IllegalArgumentException("Unknown solver: " + solverOption);
 	}
 
+	public static Solver getPortfolioSolver(List<SolverOption> solverOptions, String scratchBase,
+			Node node) {
+		List<String> names = new ArrayList<>();
+		List<Solver> solvers = new ArrayList<>();
+		for (SolverOption solverOption : solverOptions) {
+			String backendScratchBase = scratchBase == null ? null : scratchBase + "." + solverOption;
+			names.add(solverOption.toString());
+			solvers.add(getSolver(solverOption, backendScratchBase, node));
+		}
+		return new PortfolioSolver(names, solvers);
+	}
+
 	public static Solver getBasicSolver(SolverOption solverOption) {
 		Node emptyNode = new NodeBuilder("empty").build();
 		return getSolver(solverOption, null, emptyNode);
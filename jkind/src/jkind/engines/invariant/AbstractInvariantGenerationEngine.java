@@ -1,5 +1,7 @@
 package jkind.engines.invariant;
 
+import static java.util.stream.Collectors.toList;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,18 +18,19 @@ import jkind.engines.messages.UnknownMessage;
 import jkind.engines.messages.ValidMessage;
 import jkind.lustre.Expr;
 import jkind.lustre.IdExpr;
-import jkind.sexp.Cons;
-import jkind.sexp.Sexp;
+import jkind.lustre.values.BooleanValue;
 import jkind.solvers.Model;
 import jkind.solvers.ModelEvaluator;
 import jkind.solvers.Result;
 import jkind.solvers.UnsatResult;
 import jkind.translation.Specification;
-import jkind.util.SexpUtil;
 
 public abstract class AbstractInvariantGenerationEngine extends SolverBasedEngine {
 	private final InvariantSet provenInvariants = new InvariantSet();
 
+	/* The largest k for which invariants received from other engines are inductive */
+	private int receivedK = 0;
+
 	public AbstractInvariantGenerationEngine(String name, Specification spec,
 			JKindSettings settings, Director director) {
 		super(name, spec, settings, director);
@@ -68,19 +71,9 @@ public abstract class AbstractInvariantGenerationEngine extends SolverBasedEngin
 		}
 
 		do {
-			checkForStop();
-
-			Sexp query = SexpUtil.conjoinInvariants(invariant.toExprs(), k);
-			result = solver.query(query);
-
+			result = queryAndRefine(k, invariant);
 			if (!(result instanceof UnsatResult)) {
-				Model model = getModel(result);
-				if (model == null) {
-					comment("No model - unable to continue");
-					throw new StopException();
-				}
-				invariant.refine(new ModelEvaluator(model, k));
-				comment("Finished single base step refinement");
+				comment("Finished base step refinement");
 			}
 		} while (!invariant.isTrivial() && !(result instanceof UnsatResult));
 
@@ -98,18 +91,9 @@ public abstract class AbstractInvariantGenerationEngine extends SolverBasedEngin
 		}
 
 		do {
-			checkForStop();
-
-			result = solver.query(getInductiveQuery(k, invariant));
-
+			result = queryInductive(k, invariant);
 			if (!(result instanceof UnsatResult)) {
-				Model model = getModel(result);
-				if (model == null) {
-					comment("No model - unable to continue");
-					throw new StopException();
-				}
-				invariant.refine(new ModelEvaluator(model, k));
-				comment("Finished single inductive step refinement");
+				comment("Finished inductive step refinement");
 			}
 		} while (!invariant.isTrivial() && !(result instanceof UnsatResult));
 
@@ -117,15 +101,15 @@ public abstract class AbstractInvariantGenerationEngine extends SolverBasedEngin
 
 		List<Expr> newInvariants = invariant.toFinalInvariants();
 		provenInvariants.addAll(newInvariants);
-		sendValidProperties(newInvariants, k);
-		sendInvariants(newInvariants);
+		sendValidProperties(newInvariants, Math.max(k, receivedK));
+		sendInvariants(newInvariants, Math.max(k, receivedK));
 
 		original.reduceProven(invariant);
 		return;
 	}
 
 	private void assertInvariants(InvariantSet set, int i) {
-		solver.assertSexp(SexpUtil.conjoinInvariants(set.getInvariants(), i));
+		solver.assertInvariants(set.getInvariants(), i);
 	}
 
 	private void checkForStop() {
@@ -135,15 +119,64 @@ public abstract class AbstractInvariantGenerationEngine extends SolverBasedEngin
 		}
 	}
 
-	private Sexp getInductiveQuery(int k, StructuredInvariant invariant) {
+	/**
+	 * Checks that the invariant holding for steps 0 to k-1 implies it holds at
+	 * step k, refining it if not
+	 */
+	private Result queryInductive(int k, StructuredInvariant invariant) {
 		List<Expr> exprs = invariant.toExprs();
-		List<Sexp> hyps = new ArrayList<>();
+		solver.push();
 		for (int i = 0; i < k; i++) {
-			hyps.add(SexpUtil.conjoinInvariants(exprs, i));
+			solver.assertInvariants(exprs, i);
 		}
-		Sexp conc = SexpUtil.conjoinInvariants(exprs, k);
+		Result result = queryAndRefine(k, invariant);
+		solver.pop();
+		return result;
+	}
+
+	/**
+	 * Checks that the invariant holds at step k, refining it with the
+	 * counterexamples found if not. Up to invGenModels counterexamples are
+	 * gathered before refining, each query asking only about the candidate
+	 * expressions which the earlier counterexamples satisfy, so every model
+	 * falsifies something new. Returns the result of the first query.
+	 */
+	private Result queryAndRefine(int k, StructuredInvariant invariant) {
+		List<Expr> remaining = invariant.toExprs();
+		List<Model> models = new ArrayList<>();
+		Result first = null;
+
+		while (models.size() < settings.invGenModels && !remaining.isEmpty()) {
+			checkForStop();
+
+			Result result = solver.queryInvariants(remaining, k);
+			if (first == null) {
+				first = result;
+			}
+			if (result instanceof UnsatResult) {
+				break;
+			}
+
+			Model model = getModel(result);
+			if (model == null) {
+				comment("No model - unable to continue");
+				throw new StopException();
+			}
+			models.add(model);
 
-		return new Cons("=>", SexpUtil.conjoin(hyps), conc);
+			ModelEvaluator eval = new ModelEvaluator(model, k);
+			if (!remaining.removeIf(expr -> eval.eval(expr) != BooleanValue.TRUE)) {
+				break;
+			}
+		}
+
+		for (Model model : models) {
+			invariant.refine(new ModelEvaluator(model, k));
+		}
+		if (models.size() > 1) {
+			comment("Refined with " + models.size() + " models");
+		}
+		return first;
 	}
 
 	private void sendValidProperties(List<Expr> newInvariants, int k) {
@@ -165,13 +198,13 @@ public abstract class AbstractInvariantGenerationEngine extends SolverBasedEngin
 		}
 	}
 
-	private void sendInvariants(List<Expr> newInvariants) {
+	private void sendInvariants(List<Expr> newInvariants, int k) {
 		comment("Sending invariants:");
 		for (Expr inv : newInvariants) {
 			comment("  " + inv);
 		}
 
-		director.broadcast(new InvariantMessage(newInvariants));
+		director.broadcast(new InvariantMessage(newInvariants, k));
 	}
 
 	@Override
@@ -187,8 +220,14 @@ public abstract class AbstractInvariantGenerationEngine extends SolverBasedEngin
 		properties.removeAll(im.invalid);
 	}
 
+	/**
+	 * Invariants proven by other engines, including those for other domains,
+	 * strengthen the inductive step
+	 */
 	@Override
 	protected void handleMessage(InvariantMessage im) {
+		provenInvariants.addAll(im.invariants.stream().filter(solver::supports).collect(toList()));
+		receivedK = Math.max(receivedK, im.k);
 	}
 
 	@Override
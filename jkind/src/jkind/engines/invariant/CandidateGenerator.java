@@ -1,14 +1,27 @@
 package jkind.engines.invariant;
 
 import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import jkind.JKindSettings;
 import jkind.analysis.evaluation.InitialStepEvaluator;
+import jkind.analysis.evaluation.Simulator;
+import jkind.analysis.evaluation.StateEvaluator;
 import jkind.lustre.BinaryExpr;
 import jkind.lustre.BinaryOp;
 import jkind.lustre.BoolExpr;
 import jkind.lustre.EnumType;
+import jkind.lustre.Equation;
 import jkind.lustre.Expr;
 import jkind.lustre.IdExpr;
 import jkind.lustre.IntExpr;
@@ -17,47 +30,150 @@ import jkind.lustre.SubrangeIntType;
 import jkind.lustre.Type;
 import jkind.lustre.UnaryExpr;
 import jkind.lustre.UnaryOp;
+import jkind.lustre.values.BooleanValue;
 import jkind.lustre.values.IntegerValue;
 import jkind.lustre.values.Value;
+import jkind.slicing.Dependency;
+import jkind.slicing.DependencyVisitor;
 import jkind.translation.Specification;
 
+/**
+ * Candidate invariants for invariant generation, built from templates:
+ * <ul>
+ * <li>unary: boolean literals, bounds and values of numeric variables</li>
+ * <li>order: x <= y and x >= y</li>
+ * <li>octagon: x - y and x + y bounded by their initial values</li>
+ * </ul>
+ * Relational templates are only instantiated for integer state variables
+ * where one depends on the other, possibly through combinatorial variables.
+ * Implications between booleans need no template since they are found as
+ * edges of the graph invariant.
+ *
+ * Candidates are split by abstract domain so that each domain can be refined
+ * by its own engine:
+ * <ul>
+ * <li>boolean: boolean variables, related by the implication graph</li>
+ * <li>bounds: bounds of integer variables</li>
+ * <li>equalities: relational candidates, whose pairs become equalities such as
+ * x = y or x - y = c when both hold</li>
+ * <li>enums: values of enumerations and small subranges</li>
+ * </ul>
+ * The boolean literals are shared by all domains.
+ *
+ * Candidates are ranked using random simulation. Relational candidates are
+ * only useful on their own, so those falsified by simulation are discarded.
+ * If the budget is still exceeded, candidates which were least often
+ * falsified (or least often satisfied) are kept. The simulated states are
+ * kept so that the invariant can be refined by them before any solver call.
+ */
 public class CandidateGenerator {
-	private Specification spec;
+	public static final String UNARY = "unary";
+	public static final String ORDER = "order";
+	public static final String OCTAGON = "octagon";
+	public static final List<String> TEMPLATES = Arrays.asList(UNARY, ORDER, OCTAGON);
+
+	public static final String BOOLEAN = "boolean";
+	public static final String BOUNDS = "bounds";
+	public static final String EQUALITIES = "equalities";
+	public static final String ENUMS = "enums";
+	public static final List<String> DOMAINS = Arrays.asList(BOOLEAN, BOUNDS, EQUALITIES, ENUMS);
+
+	/* Subranges with more values than this are bounded rather than enumerated */
+	private static final int MAX_SUBRANGE_VALUES = 16;
+
+	private static final int SIMULATION_TRACES = 40;
+	private static final int SIMULATION_STEPS = 100;
+
+	private final Specification spec;
+	private final List<String> templates;
+	private final int budget;
+	private final boolean compiled;
+	private final Map<String, Expr> equations = new HashMap<>();
 
 	private List<Expr> candidates;
+	private Set<Expr> relational;
+	private Map<Expr, String> domains;
+	private List<Expr> generated;
+	private List<Map<String, Value>> states;
 	private InitialStepEvaluator evaluator;
+	private CombinatorialInfo info;
 
-	public CandidateGenerator(Specification spec) {
+	public CandidateGenerator(Specification spec, JKindSettings settings) {
 		this.spec = spec;
+		this.templates = settings.invGenTemplates;
+		this.budget = settings.invGenCandidates;
+		this.compiled = settings.compiledEvaluation;
 		this.evaluator = new InitialStepEvaluator(spec.node);
+		for (Equation eq : spec.node.equations) {
+			equations.put(eq.lhs.get(0).id, eq.expr);
+		}
+	}
+
+	/**
+	 * The candidates of the given domain, along with the boolean literals, or
+	 * an empty list if the domain has none. All candidates are returned if the
+	 * domain is null. Candidates for all domains are generated by the first
+	 * call.
+	 */
+	public synchronized List<Expr> getCandidates(String domain) {
+		if (generated == null) {
+			generated = generate();
+		}
+
+		List<Expr> result = new ArrayList<>();
+		boolean found = false;
+		for (Expr candidate : generated) {
+			String candidateDomain = domains.get(candidate);
+			if (candidateDomain == null) {
+				result.add(candidate);
+			} else if (domain == null || candidateDomain.equals(domain)) {
+				result.add(candidate);
+				found = true;
+			}
+		}
+		return found ? result : new ArrayList<>();
 	}
 
-	public List<Expr> generate() {
+	private List<Expr> generate() {
 		candidates = new ArrayList<>();
+		relational = new HashSet<>();
+		domains = new HashMap<>();
 
 		candidates.add(new BoolExpr(true));
 		candidates.add(new BoolExpr(false));
 
-		CombinatorialInfo info = new CombinatorialInfo(spec.node);
+		info = new CombinatorialInfo(spec.node);
 
+		List<String> stateInts = new ArrayList<>();
 		for (String id : spec.typeMap.keySet()) {
 			if (info.isCombinatorial(id) && !spec.node.properties.contains(id)) {
 				continue;
 			}
 
 			Type type = spec.typeMap.get(id);
-			if (type == NamedType.INT) {
-				addIntCandidates(id);
-			} else if (type == NamedType.BOOL) {
-				addBoolCandidates(id);
-			} else if (type instanceof SubrangeIntType) {
-				addSubrangeCandidates(id, (SubrangeIntType) type);
-			} else if (type instanceof EnumType) {
-				addEnumCandidates(id, (EnumType) type);
+			if (templates.contains(UNARY)) {
+				if (type == NamedType.INT) {
+					addIntCandidates(id);
+				} else if (type == NamedType.BOOL) {
+					addBoolCandidates(id);
+				} else if (type instanceof SubrangeIntType) {
+					addSubrangeCandidates(id, (SubrangeIntType) type);
+				} else if (type instanceof EnumType) {
+					addEnumCandidates(id, (EnumType) type);
+				}
+			}
+
+			if ((type == NamedType.INT || type instanceof SubrangeIntType)
+					&& !info.isCombinatorial(id) && equations.get(id) != null) {
+				stateInts.add(id);
 			}
 		}
 
-		return candidates;
+		if (templates.contains(ORDER) || templates.contains(OCTAGON)) {
+			addRelationalCandidates(stateInts);
+		}
+
+		return rank();
 	}
 
 	private void addIntCandidates(String id) {
@@ -65,10 +181,10 @@ public class CandidateGenerator {
 		IdExpr idExpr = new IdExpr(id);
 		if (init != null) {
 			IntExpr initExpr = new IntExpr(init);
-			candidates.add(new BinaryExpr(idExpr, BinaryOp.GREATEREQUAL, initExpr));
-			candidates.add(new BinaryExpr(idExpr, BinaryOp.LESSEQUAL, initExpr));
+			add(new BinaryExpr(idExpr, BinaryOp.GREATEREQUAL, initExpr), BOUNDS);
+			add(new BinaryExpr(idExpr, BinaryOp.LESSEQUAL, initExpr), BOUNDS);
 		} else {
-			candidates.add(new BinaryExpr(idExpr, BinaryOp.GREATEREQUAL, new IntExpr(0)));
+			add(new BinaryExpr(idExpr, BinaryOp.GREATEREQUAL, new IntExpr(0)), BOUNDS);
 		}
 	}
 
@@ -82,15 +198,21 @@ public class CandidateGenerator {
 	}
 
 	private void addBoolCandidates(String id) {
-		candidates.add(new IdExpr(id));
-		candidates.add(new UnaryExpr(UnaryOp.NOT, new IdExpr(id)));
+		add(new IdExpr(id), BOOLEAN);
+		add(new UnaryExpr(UnaryOp.NOT, new IdExpr(id)), BOOLEAN);
 	}
 
 	private void addSubrangeCandidates(String id, SubrangeIntType subrange) {
+		BigInteger width = subrange.high.subtract(subrange.low);
+		if (width.compareTo(BigInteger.valueOf(MAX_SUBRANGE_VALUES)) >= 0) {
+			addIntCandidates(id);
+			return;
+		}
+
 		IdExpr idExpr = new IdExpr(id);
 		for (BigInteger r = subrange.low; r.compareTo(subrange.high) <= 0; r = r
 				.add(BigInteger.ONE)) {
-			candidates.add(new BinaryExpr(idExpr, BinaryOp.EQUAL, new IntExpr(r)));
+			add(new BinaryExpr(idExpr, BinaryOp.EQUAL, new IntExpr(r)), ENUMS);
 		}
 	}
 
@@ -99,4 +221,141 @@ public class CandidateGenerator {
 		BigInteger high = BigInteger.valueOf(et.values.size() - 1);
 		addSubrangeCandidates(id, new SubrangeIntType(low, high));
 	}
+
+	private void addRelationalCandidates(List<String> stateInts) {
+		Set<String> pairs = new HashSet<>();
+		for (String x : stateInts) {
+			for (String y : getStateDependencies(x)) {
+				if (x.equals(y) || !stateInts.contains(y)) {
+					continue;
+				}
+
+				String first = x.compareTo(y) < 0 ? x : y;
+				String second = x.compareTo(y) < 0 ? y : x;
+				if (pairs.add(first + " " + second)) {
+					addRelationalCandidates(first, second);
+				}
+			}
+		}
+	}
+
+	private void addRelationalCandidates(String x, String y) {
+		IdExpr xExpr = new IdExpr(x);
+		IdExpr yExpr = new IdExpr(y);
+
+		if (templates.contains(ORDER)) {
+			addRelational(new BinaryExpr(xExpr, BinaryOp.LESSEQUAL, yExpr));
+			addRelational(new BinaryExpr(xExpr, BinaryOp.GREATEREQUAL, yExpr));
+		}
+
+		BigInteger xInit = getConstantInitialValue(x);
+		BigInteger yInit = getConstantInitialValue(y);
+		if (templates.contains(OCTAGON) && xInit != null && yInit != null) {
+			Expr difference = new BinaryExpr(xExpr, BinaryOp.MINUS, yExpr);
+			IntExpr differenceInit = new IntExpr(xInit.subtract(yInit));
+			addRelational(new BinaryExpr(difference, BinaryOp.LESSEQUAL, differenceInit));
+			addRelational(new BinaryExpr(difference, BinaryOp.GREATEREQUAL, differenceInit));
+
+			Expr sum = new BinaryExpr(xExpr, BinaryOp.PLUS, yExpr);
+			IntExpr sumInit = new IntExpr(xInit.add(yInit));
+			addRelational(new BinaryExpr(sum, BinaryOp.LESSEQUAL, sumInit));
+			addRelational(new BinaryExpr(sum, BinaryOp.GREATEREQUAL, sumInit));
+		}
+	}
+
+	private void addRelational(Expr candidate) {
+		add(candidate, EQUALITIES);
+		relational.add(candidate);
+	}
+
+	private void add(Expr candidate, String domain) {
+		candidates.add(candidate);
+		domains.put(candidate, domain);
+	}
+
+	/**
+	 * The state variables an equation refers to, looking through
+	 * combinatorial variables
+	 */
+	private Set<String> getStateDependencies(String id) {
+		Set<String> result = new LinkedHashSet<>();
+		Set<String> visited = new HashSet<>();
+		Deque<String> todo = new ArrayDeque<>();
+		addDependencies(equations.get(id), todo);
+
+		while (!todo.isEmpty()) {
+			String dep = todo.pop();
+			if (!visited.add(dep)) {
+				continue;
+			}
+
+			Expr expr = equations.get(dep);
+			if (expr != null && info.isCombinatorial(dep)) {
+				addDependencies(expr, todo);
+			} else {
+				result.add(dep);
+			}
+		}
+		return result;
+	}
+
+	private void addDependencies(Expr expr, Deque<String> todo) {
+		for (Dependency dep : DependencyVisitor.get(expr)) {
+			todo.push(dep.name);
+		}
+	}
+
+	/**
+	 * Reachable states found by simulation while ranking the candidates
+	 */
+	public synchronized List<Map<String, Value>> getStates() {
+		return states;
+	}
+
+	private List<Expr> rank() {
+		states = simulate();
+		if (relational.isEmpty() && candidates.size() <= budget) {
+			return candidates;
+		}
+
+		Map<Expr, Integer> scores = new HashMap<>();
+		List<Expr> ranked = new ArrayList<>();
+		for (Expr candidate : candidates) {
+			int satisfied = 0;
+			int falsified = 0;
+			for (Map<String, Value> state : states) {
+				Value value = new StateEvaluator(state).eval(candidate);
+				if (value == BooleanValue.TRUE) {
+					satisfied++;
+				} else if (value == BooleanValue.FALSE) {
+					falsified++;
+				}
+			}
+
+			if (falsified > 0 && relational.contains(candidate)) {
+				continue;
+			}
+			scores.put(candidate, Math.min(satisfied, falsified));
+			ranked.add(candidate);
+		}
+
+		if (ranked.size() <= budget) {
+			return ranked;
+		}
+
+		ranked.sort(Comparator.comparing(scores::get));
+		return new ArrayList<>(ranked.subList(0, budget));
+	}
+
+	/**
+	 * Half of the traces are purely random, the other half constrained
+	 */
+	private List<Map<String, Value>> simulate() {
+		Set<Map<String, Value>> result = new LinkedHashSet<>();
+		Simulator simulator = new Simulator(spec.node, 0, compiled);
+		for (int i = 0; i < SIMULATION_TRACES; i++) {
+			result.addAll(simulator.simulate(SIMULATION_STEPS, i % 2 == 1));
+		}
+		return new ArrayList<>(result);
+	}
 }
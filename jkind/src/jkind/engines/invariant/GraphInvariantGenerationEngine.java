@@ -1,24 +1,52 @@
 package jkind.engines.invariant;
 
 import java.util.List;
+import java.util.Map;
 
 import jkind.JKindSettings;
+import jkind.analysis.evaluation.StateEvaluator;
 import jkind.engines.Director; 
 import jkind.lustre.Expr;
+import jkind.lustre.values.Value;
 import jkind.translation.Specification;
 
+/**
+ * Invariant generation for the candidates of a single abstract domain (see
+ * {@link CandidateGenerator}), or of all domains if none is given. Each domain
+ * may run in its own engine with its own solver, so that cheap domains are not
+ * held back by expensive ones. The engine for all domains still runs
+ * alongside them, since only it finds implications between candidates of
+ * different domains.
+ */
 public class GraphInvariantGenerationEngine extends AbstractInvariantGenerationEngine {
 	public static final String NAME = "invariant-generation";
-	
+
+	private final CandidateGenerator generator;
+	private final String domain;
+
 	public GraphInvariantGenerationEngine(Specification spec, JKindSettings settings,
-			Director director) {
-		super(NAME, spec, settings, director);
+			Director director, CandidateGenerator generator, String domain) {
+		super(domain == null ? NAME : NAME + "-" + domain, spec, settings, director);
+		this.generator = generator;
+		this.domain = domain;
 	}
 
 	@Override
 	protected GraphInvariant createInitialInvariant() {
-		List<Expr> candidates = new CandidateGenerator(spec).generate();
+		List<Expr> candidates = generator.getCandidates(domain);
 		comment("Proposed " + candidates.size() + " candidates");
-		return new GraphInvariant(candidates);
+
+		// Simulated states are reachable, so they refine the invariant just
+		// as base step counterexamples would
+		GraphInvariant invariant = new GraphInvariant(candidates);
+		if (invariant.isTrivial()) {
+			return invariant;
+		}
+		for (Map<String, Value> state : generator.getStates()) {
+			invariant.refine(new StateEvaluator(state));
+		}
+		comment("Simulation of " + generator.getStates().size() + " states left "
+				+ invariant.toExprs().size() + " candidate invariants");
+		return invariant;
 	}
 }
@@ -0,0 +1,157 @@
+package jkind.engines.invariant;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BinaryOp;
+import jkind.lustre.Expr;
+
+/**
+ * Invariants published by all engines, kept as clauses over their
+ * disjuncts. A lemma is accepted only if no stored clause subsumes it, and
+ * accepting it retires the stored clauses it subsumes. Clauses are indexed
+ * under each of their disjuncts, as in the PDR frames, so subsumption checks
+ * only consider clauses sharing a disjunct with the candidate.
+ *
+ * Subsumption is purely syntactic: disjuncts are compared by their string
+ * representation.
+ */
+public class LemmaStore {
+	private final Map<String, Set<Clause>> occurrences = new HashMap<>();
+	private final Set<String> retired = new HashSet<>();
+
+	private static class Clause {
+		final Set<String> disjuncts;
+		final String first;
+		final String key;
+
+		Clause(Expr expr) {
+			List<String> strings = new ArrayList<>();
+			for (Expr disjunct : getDisjuncts(expr)) {
+				strings.add(disjunct.toString());
+			}
+			this.disjuncts = new HashSet<>(strings);
+			this.first = strings.get(0);
+			this.key = expr.toString();
+		}
+
+		boolean subsumes(Clause other) {
+			return other.disjuncts.containsAll(disjuncts);
+		}
+	}
+
+	/**
+	 * Add the given lemmas to the store, returning those which were not
+	 * already implied by a stored clause. Conjunctions are split into
+	 * separate lemmas.
+	 */
+	public synchronized List<Expr> publish(Collection<Expr> lemmas) {
+		List<Expr> result = new ArrayList<>();
+		for (Expr lemma : lemmas) {
+			for (Expr conjunct : getConjuncts(lemma)) {
+				if (publish(conjunct)) {
+					result.add(conjunct);
+				}
+			}
+		}
+		return result;
+	}
+
+	private boolean publish(Expr lemma) {
+		Clause clause = new Clause(lemma);
+		if (hasSubsuming(clause)) {
+			return false;
+		}
+
+		removeSubsumedBy(clause);
+		for (String disjunct : clause.disjuncts) {
+			occurrences.computeIfAbsent(disjunct, d -> new HashSet<>()).add(clause);
+		}
+		return true;
+	}
+
+	/**
+	 * Whether a lemma accepted earlier has since been subsumed by a stronger
+	 * one, so that engines need not assert it again
+	 */
+	public synchronized boolean isRetired(Expr lemma) {
+		return retired.contains(lemma.toString());
+	}
+
+	private boolean hasSubsuming(Clause clause) {
+		for (String disjunct : clause.disjuncts) {
+			for (Clause c : occurrences.getOrDefault(disjunct, Collections.emptySet())) {
+				// Each candidate is checked only under its first disjunct
+				if (c.first.equals(disjunct) && c.subsumes(clause)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void removeSubsumedBy(Clause clause) {
+		Set<Clause> candidates = null;
+		for (String disjunct : clause.disjuncts) {
+			Set<Clause> occurring = occurrences.get(disjunct);
+			if (occurring == null) {
+				return;
+			}
+			if (candidates == null || occurring.size() < candidates.size()) {
+				candidates = occurring;
+			}
+		}
+
+		List<Clause> subsumed = new ArrayList<>();
+		for (Clause c : candidates) {
+			if (clause.subsumes(c)) {
+				subsumed.add(c);
+			}
+		}
+
+		for (Clause c : subsumed) {
+			for (String disjunct : c.disjuncts) {
+				Set<Clause> occurring = occurrences.get(disjunct);
+				occurring.remove(c);
+				if (occurring.isEmpty()) {
+					occurrences.remove(disjunct);
+				}
+			}
+			retired.add(c.key);
+		}
+	}
+
+	/**
+	 * Whether every disjunct of the clause is a disjunct of the other clause,
+	 * so that the clause implies it
+	 */
+	public static boolean subsumes(Expr clause, Expr other) {
+		return new Clause(clause).subsumes(new Clause(other));
+	}
+
+	public static List<Expr> getConjuncts(Expr expr) {
+		return flatten(expr, BinaryOp.AND, new ArrayList<>());
+	}
+
+	public static List<Expr> getDisjuncts(Expr expr) {
+		return flatten(expr, BinaryOp.OR, new ArrayList<>());
+	}
+
+	private static List<Expr> flatten(Expr expr, BinaryOp op, List<Expr> result) {
+		if (expr instanceof BinaryExpr && ((BinaryExpr) expr).op == op) {
+			BinaryExpr be = (BinaryExpr) expr;
+			flatten(be.left, op, result);
+			flatten(be.right, op, result);
+		} else {
+			result.add(expr);
+		}
+		return result;
+	}
+}
@@ -147,7 +147,7 @@ public class AllIvcsExtractorEngine extends SolverBasedEngine {
 		if (settings.scratch){
 			comment("Sending a request for a new IVC while deactivating "+ IvcUtil.getIvcLiterals(ivcMap, deactivate));
 		}
-		MiniJKind miniJkind = new MiniJKind (newSpec, js);
+		MiniJKind miniJkind = new MiniJKind (newSpec, js, director.getSolverPool());
 		miniJkind.verify();
 		if(miniJkind.getPropertyStatus().equals(MiniJKind.UNKNOW_WITH_EXCEPTION)){
 			js.pdrMax = 0;
@@ -220,7 +220,7 @@ public class AllIvcsExtractorEngine extends SolverBasedEngine {
 		if (settings.scratch){
 			comment("Result was UNKNOWN; Resend the request with pdrMax = 0 ...");
 		}
-		MiniJKind miniJkind = new MiniJKind (newSpec, js);
+		MiniJKind miniJkind = new MiniJKind (newSpec, js, director.getSolverPool());
 		miniJkind.verify();
 		if(miniJkind.getPropertyStatus().equals(MiniJKind.VALID)){
 			mayElements.addAll(deactivate);
@@ -3,6 +3,7 @@ import java.util.HashSet;
 import java.util.Set; 
 import jkind.JKindSettings; 
 import jkind.engines.MiniJKind;  
+import jkind.engines.SolverPool;
 import jkind.lustre.Node;  
 import jkind.translation.Specification;  
 
@@ -22,16 +23,21 @@ public class MinimalIvcFinder {
 		js.allAssigned = false;
 		js.miniJkind = true; 
 		js.timeout = timeout; 
-		for (String s : candidates) {  
-			Node candidate = IvcUtil.unassign(node, s, property);
-	
-			MiniJKind miniJkind = new MiniJKind (new Specification(candidate, js.slicing), js);
-			miniJkind.verify();
-			if (miniJkind.getPropertyStatus() == MiniJKind.VALID) {
-				minimal.remove(s);
-				node = candidate;
+		SolverPool solverPool = new SolverPool();
+		try {
+			for (String s : candidates) {  
+				Node candidate = IvcUtil.unassign(node, s, property);
+		
+				MiniJKind miniJkind = new MiniJKind (new Specification(candidate, js.slicing), js, solverPool);
+				miniJkind.verify();
+				if (miniJkind.getPropertyStatus() == MiniJKind.VALID) {
+					minimal.remove(s);
+					node = candidate;
+				}
+				miniJkind = null;
 			}
-			miniJkind = null;
+		} finally {
+			solverPool.drain();
 		}
 		minimal.addAll(mustElements);
 		minimal = IvcUtil.trimNode(minimal);
@@ -45,15 +51,20 @@ public class MinimalIvcFinder {
 		js.allAssigned = false;
 		js.miniJkind = true; 
 		js.timeout = timeout; 
-		for (String s : candidates) {    
-			Node candidate = IvcUtil.unassign(node, s, property);
-			MiniJKind miniJkind = new MiniJKind (new Specification(candidate, js.slicing), js);
-			miniJkind.verify();
-			if (miniJkind.getPropertyStatus() != MiniJKind.VALID) {
-				must.add(s);
-			}
-			miniJkind = null;
-		} 
+		SolverPool solverPool = new SolverPool();
+		try {
+			for (String s : candidates) {    
+				Node candidate = IvcUtil.unassign(node, s, property);
+				MiniJKind miniJkind = new MiniJKind (new Specification(candidate, js.slicing), js, solverPool);
+				miniJkind.verify();
+				if (miniJkind.getPropertyStatus() != MiniJKind.VALID) {
+					must.add(s);
+				}
+				miniJkind = null;
+			} 
+		} finally {
+			solverPool.drain();
+		}
 		must = IvcUtil.trimNode(must);
 		return must;
 	}	
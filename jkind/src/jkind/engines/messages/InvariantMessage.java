@@ -6,15 +6,21 @@ import java.util.List;
 import jkind.lustre.Expr;
 import jkind.util.Util;
 
+/**
+ * Invariants which, together with those published before them, are
+ * k-inductive
+ */
 public class InvariantMessage extends Message {
 	public final List<Expr> invariants;
+	public final int k;
 
-	public InvariantMessage(List<Expr> invs) {
+	public InvariantMessage(List<Expr> invs, int k) {
 		this.invariants = Util.safeList(invs);
+		this.k = k;
 	}
 
-	public InvariantMessage(Expr invariant) {
-		this(Collections.singletonList(invariant));
+	public InvariantMessage(Expr invariant, int k) {
+		this(Collections.singletonList(invariant), k);
 	}
 
 	@Override
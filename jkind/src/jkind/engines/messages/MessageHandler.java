@@ -7,14 +7,29 @@ import java.util.function.Supplier;
 import jkind.JKindException;
 import jkind.engines.StopException; 
 public abstract class MessageHandler {
-	private BlockingQueue<Message> incoming = new LinkedBlockingQueue<>();
+	private volatile BlockingQueue<Message> incoming = new LinkedBlockingQueue<>();
+
+	/*
+	 * Posted to wake a handler blocked on its queue so that it re-evaluates
+	 * conditions which do not change as the result of a message
+	 */
+	private static final Message WAKE_UP = new Message() {
+		@Override
+		public void accept(MessageHandler handler) {
+		}
+	};
 
 	public void receiveMessage(Message message) {
-		if (incoming != null) {
-			incoming.add(message);
+		BlockingQueue<Message> queue = incoming;
+		if (queue != null) {
+			queue.add(message);
 		}
 	}
 
+	public void wakeUp() {
+		receiveMessage(WAKE_UP);
+	}
+
 	protected void stopReceivingMessages() {
 		incoming = null;
 	}
@@ -29,13 +44,32 @@ public abstract class MessageHandler {
 		message.accept(this);
 	}
 
+	/**
+	 * Block until a message arrives or the timeout expires, then process all
+	 * pending messages
+	 */
+	protected void processMessagesAndWait(long timeoutMillis) {
+		try {
+			Message message = incoming.poll(Math.max(timeoutMillis, 0), TimeUnit.MILLISECONDS);
+			if (message != null) {
+				handleMessage(message);
+				processMessages();
+			}
+		} catch (InterruptedException e) {
+			throw new JKindException("Interrupted while waiting for message", e);
+		}
+	}
+
+	/**
+	 * Block on the message queue until the stopping condition holds. The
+	 * condition is re-evaluated only after a message (or wake up) arrives, so
+	 * any state it reads which is changed outside of message handling must be
+	 * followed by a call to {@link #wakeUp()}.
+	 */
 	protected void processMessagesAndWaitUntil(Supplier<Boolean> stoppingCondition) {
 		try {
 			while (!incoming.isEmpty() || !stoppingCondition.get()) {
-				Message message = incoming.poll(100, TimeUnit.MILLISECONDS);
-				if (message != null) {
-					handleMessage(message);
-				}
+				handleMessage(incoming.take());
 			}
 		} catch (InterruptedException e) {
 			throw new JKindException("Interrupted while waiting for message", e);
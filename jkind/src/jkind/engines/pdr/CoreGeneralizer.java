@@ -0,0 +1,71 @@
+package jkind.engines.pdr;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jkind.engines.pdr.PdrSmt.Option;
+import de.uni_freiburg.informatik.ultimate.logic.Term;
+
+/**
+ * Drop literals in order of increasing activity, where the activity of a
+ * literal counts the generalized cubes it has appeared in. Whenever a
+ * literal is dropped, the cube shrinks to the unsat core of the successful
+ * query, which usually removes several literals at once.
+ */
+public class CoreGeneralizer extends Generalizer {
+	private final Map<Term, Integer> activity = new HashMap<>();
+
+	public CoreGeneralizer(String name, PdrSmt Z) {
+		super(name, Z);
+	}
+
+	@Override
+	protected void doGeneralize(TCube s) {
+		Cube cube = s.getCube();
+		List<Term> ordered = new ArrayList<>(cube.getPLiterals());
+		ordered.sort(Comparator.comparingInt(literal -> activity.getOrDefault(literal, 0)));
+
+		for (Term literal : ordered) {
+			if (!cube.getPLiterals().contains(literal)) {
+				continue;
+			}
+
+			Cube candidate = new Cube();
+			for (Term other : cube.getPLiterals()) {
+				if (other != literal) {
+					candidate.addPLiteral(other);
+				}
+			}
+
+			if (down(candidate, s.getFrame())) {
+				retain(cube, candidate);
+			}
+		}
+
+		for (Term literal : cube.getPLiterals()) {
+			activity.merge(literal, 1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Check if the candidate is blocked relative to the frame before the given
+	 * one, shrinking it to the unsat core if so. The candidate may also be
+	 * weakened on the way.
+	 */
+	protected boolean down(Cube candidate, int frame) {
+		if (Z.isInitial(candidate)) {
+			return false;
+		}
+
+		TCube result = solveRelative(new TCube(candidate, frame), Option.DEFAULT);
+		if (result.getFrame() == TCube.FRAME_NULL) {
+			return false;
+		}
+
+		retain(candidate, result.getCube());
+		return true;
+	}
+}
@@ -0,0 +1,65 @@
+package jkind.engines.pdr;
+
+import jkind.engines.pdr.PdrSmt.Option;
+
+/**
+ * Core generalization where a failed attempt to drop a literal first tries
+ * to block the counterexample to generalization (CTG), i.e., the predecessor
+ * which reaches the weakened cube. If the CTG is itself blocked one frame
+ * earlier, it is learned as a lemma and the attempt is retried. Otherwise
+ * the candidate is joined with the CTG, keeping only the literals the CTG
+ * satisfies.
+ * 
+ * Based on "Better Generalization in IC3" by Zyad Hassan, Aaron R. Bradley,
+ * and Fabio Somenzi
+ */
+public class CtgGeneralizer extends CoreGeneralizer {
+	private static final int MAX_CTGS = 3;
+
+	private final PdrSubengine subengine;
+	private int ctgsBlocked = 0;
+
+	public CtgGeneralizer(PdrSmt Z, PdrSubengine subengine) {
+		super(CTG, Z);
+		this.subengine = subengine;
+	}
+
+	@Override
+	protected boolean down(Cube candidate, int frame) {
+		int ctgs = 0;
+		while (true) {
+			if (Z.isInitial(candidate) || candidate.getPLiterals().isEmpty()) {
+				return false;
+			}
+
+			TCube result = solveRelative(new TCube(candidate, frame), Option.EXTRACT_MODEL);
+			if (result.getFrame() != TCube.FRAME_NULL) {
+				retain(candidate, result.getCube());
+				return true;
+			}
+
+			Cube ctg = result.getCube();
+			if (ctgs < MAX_CTGS && frame > 1 && frame <= subengine.depth() && !Z.isInitial(ctg)) {
+				TCube blocked = solveRelative(new TCube(ctg, frame - 1), Option.DEFAULT);
+				if (blocked.getFrame() != TCube.FRAME_NULL) {
+					ctgs++;
+					ctgsBlocked++;
+					subengine.addBlockedCube(blocked);
+					continue;
+				}
+			}
+
+			ctgs = 0;
+			int size = candidate.getPLiterals().size();
+			retain(candidate, ctg);
+			if (candidate.getPLiterals().size() == size) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public String getStatistics() {
+		return super.getStatistics() + ", " + ctgsBlocked + " CTGs blocked";
+	}
+}
@@ -1,7 +1,9 @@
 package jkind.engines.pdr;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import de.uni_freiburg.informatik.ultimate.logic.Script;
 import de.uni_freiburg.informatik.ultimate.logic.Term;
@@ -9,14 +11,31 @@ import de.uni_freiburg.informatik.ultimate.logic.Util;
 
 public class Cube {
 	private final List<Term> pLiterals = new ArrayList<>();
+	private final Set<Term> literalSet = new HashSet<>();
 	private Cube next;
+	private Term term;
+
+	/*
+	 * One bit per literal hash, so that most failed subsumption checks are
+	 * decided without looking at the literals
+	 */
+	private long signature = 0;
 
 	public void addPLiteral(Term term) {
 		pLiterals.add(term);
+		literalSet.add(term);
+		signature |= bit(term);
+		this.term = null;
 	}
 
 	public void removePLiteral(Term term) {
 		pLiterals.remove(term);
+		literalSet.remove(term);
+		signature = 0;
+		for (Term literal : pLiterals) {
+			signature |= bit(literal);
+		}
+		this.term = null;
 	}
 
 	public List<Term> getPLiterals() {
@@ -24,7 +43,14 @@ public class Cube {
 	}
 
 	public boolean subsumes(Cube other) {
-		return other.pLiterals.containsAll(pLiterals);
+		if (pLiterals.size() > other.pLiterals.size() || (signature & ~other.signature) != 0) {
+			return false;
+		}
+		return other.literalSet.containsAll(pLiterals);
+	}
+
+	private static long bit(Term term) {
+		return 1L << (term.hashCode() & 63);
 	}
 
 	public void setNext(Cube next) {
@@ -36,7 +62,10 @@ public class Cube {
 	}
 
 	public Term toTerm(Script script) {
-		return Util.and(script, pLiterals.toArray(new Term[pLiterals.size()]));
+		if (term == null) {
+			term = Util.and(script, pLiterals.toArray(new Term[pLiterals.size()]));
+		}
+		return term;
 	}
 
 	@Override
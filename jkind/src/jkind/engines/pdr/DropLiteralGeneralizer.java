@@ -0,0 +1,29 @@
+package jkind.engines.pdr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jkind.engines.pdr.PdrSmt.Option;
+import de.uni_freiburg.informatik.ultimate.logic.Term;
+
+/**
+ * Try dropping each literal once, in order
+ */
+public class DropLiteralGeneralizer extends Generalizer {
+	public DropLiteralGeneralizer(PdrSmt Z) {
+		super(DROP, Z);
+	}
+
+	@Override
+	protected void doGeneralize(TCube s) {
+		List<Term> pLiterals = new ArrayList<>(s.getCube().getPLiterals());
+
+		for (Term p : pLiterals) {
+			s.getCube().removePLiteral(p);
+			if (Z.isInitial(s.getCube())
+					|| solveRelative(s, Option.DEFAULT).getFrame() == TCube.FRAME_NULL) {
+				s.getCube().addPLiteral(p);
+			}
+		}
+	}
+}
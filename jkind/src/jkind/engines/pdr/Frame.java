@@ -1,15 +1,28 @@
 package jkind.engines.pdr;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import de.uni_freiburg.informatik.ultimate.logic.Script;
 import de.uni_freiburg.informatik.ultimate.logic.Term;
 import de.uni_freiburg.informatik.ultimate.logic.Util;
 
+/**
+ * The cubes blocked at exactly one frame, as in the delta encoding of
+ * frames used by PDR. Each cube is indexed under all of its literals, so
+ * subsumption checks only consider cubes sharing a literal with the
+ * candidate. Cubes must not be modified once they are added.
+ */
 public class Frame {
 	private final Term term;
 	private final Set<Cube> cubes = new HashSet<>();
+	private final Map<Term, Set<Cube>> occurrences = new HashMap<>();
+	private Term cubesTerm;
 
 	public Frame(Term term) {
 		this.term = term;
@@ -24,22 +37,87 @@ public class Frame {
 			return term;
 		}
 
-		Term[] terms = new Term[cubes.size()];
-		int i = 0;
-		for (Cube c : cubes) {
-			terms[i] = Util.not(script, c.toTerm(script));
-			i++;
+		if (cubesTerm == null) {
+			Term[] terms = new Term[cubes.size()];
+			int i = 0;
+			for (Cube c : cubes) {
+				terms[i] = Util.not(script, c.toTerm(script));
+				i++;
+			}
+			cubesTerm = Util.and(script, terms);
 		}
-		return Util.and(script, terms);
+		return cubesTerm;
 	}
 
 	public void add(Cube c) {
 		assert term == null;
-		cubes.add(c);
+		if (cubes.add(c)) {
+			for (Term literal : c.getPLiterals()) {
+				occurrences.computeIfAbsent(literal, l -> new HashSet<>()).add(c);
+			}
+			cubesTerm = null;
+		}
+	}
+
+	public void remove(Cube c) {
+		if (cubes.remove(c)) {
+			for (Term literal : c.getPLiterals()) {
+				Set<Cube> occurring = occurrences.get(literal);
+				occurring.remove(c);
+				if (occurring.isEmpty()) {
+					occurrences.remove(literal);
+				}
+			}
+			cubesTerm = null;
+		}
 	}
 
 	public Set<Cube> getCubes() {
-		return cubes;
+		return Collections.unmodifiableSet(cubes);
+	}
+
+	/** Whether some cube in this frame subsumes the given cube */
+	public boolean hasSubsuming(Cube cube) {
+		for (Term literal : cube.getPLiterals()) {
+			Set<Cube> occurring = occurrences.get(literal);
+			if (occurring == null) {
+				continue;
+			}
+
+			for (Cube c : occurring) {
+				// Each candidate is checked only under its first literal
+				if (c.getPLiterals().get(0) == literal && c.subsumes(cube)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Remove and return the cubes in this frame subsumed by the given cube */
+	public List<Cube> removeSubsumedBy(Cube cube) {
+		Set<Cube> candidates = null;
+		for (Term literal : cube.getPLiterals()) {
+			Set<Cube> occurring = occurrences.get(literal);
+			if (occurring == null) {
+				return Collections.emptyList();
+			}
+			if (candidates == null || occurring.size() < candidates.size()) {
+				candidates = occurring;
+			}
+		}
+		if (candidates == null) {
+			candidates = cubes;
+		}
+
+		List<Cube> subsumed = new ArrayList<>();
+		for (Cube c : candidates) {
+			if (cube.subsumes(c)) {
+				subsumed.add(c);
+			}
+		}
+		subsumed.forEach(this::remove);
+		return subsumed;
 	}
 
 	public boolean isEmpty() {
@@ -0,0 +1,78 @@
+package jkind.engines.pdr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jkind.engines.pdr.PdrSmt.Option;
+import de.uni_freiburg.informatik.ultimate.logic.Term;
+
+/**
+ * Strategy for weakening a blocked cube before it is added to the frames.
+ * Each strategy counts its own work so that strategies can be compared on a
+ * given model.
+ */
+public abstract class Generalizer {
+	public static final String DROP = "drop";
+	public static final String CORE = "core";
+	public static final String CTG = "ctg";
+	public static final List<String> NAMES = Arrays.asList(DROP, CORE, CTG);
+
+	protected final PdrSmt Z;
+
+	private final String name;
+	private int cubes = 0;
+	private int queries = 0;
+	private int literalsBefore = 0;
+	private int literalsAfter = 0;
+
+	protected Generalizer(String name, PdrSmt Z) {
+		this.name = name;
+		this.Z = Z;
+	}
+
+	public static Generalizer create(String name, PdrSmt Z, PdrSubengine subengine) {
+		switch (name) {
+		case DROP:
+			return new DropLiteralGeneralizer(Z);
+		case CORE:
+			return new CoreGeneralizer(CORE, Z);
+		case CTG:
+			return new CtgGeneralizer(Z, subengine);
+		default:
+			throw new IllegalArgumentException("Unknown generalizer: " + name);
+		}
+	}
+
+	/**
+	 * Remove literals from the cube of s while it stays non-initial and
+	 * blocked relative to the frame before s
+	 */
+	public final void generalize(TCube s) {
+		cubes++;
+		literalsBefore += s.getCube().getPLiterals().size();
+		doGeneralize(s);
+		literalsAfter += s.getCube().getPLiterals().size();
+	}
+
+	protected abstract void doGeneralize(TCube s);
+
+	protected TCube solveRelative(TCube s, Option option) {
+		queries++;
+		return Z.solveRelative(s, option);
+	}
+
+	/** Remove the literals of cube which do not occur in kept */
+	protected static void retain(Cube cube, Cube kept) {
+		for (Term literal : new ArrayList<>(cube.getPLiterals())) {
+			if (!kept.getPLiterals().contains(literal)) {
+				cube.removePLiteral(literal);
+			}
+		}
+	}
+
+	public String getStatistics() {
+		return "Generalizer " + name + ": " + cubes + " cubes, " + queries + " queries, "
+				+ literalsBefore + " literals reduced to " + literalsAfter;
+	}
+}
@@ -1,12 +1,17 @@
 package jkind.engines.pdr;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import jkind.analysis.ConstantAnalyzer;
 
 import jkind.lustre.ArrayAccessExpr;
 import jkind.lustre.ArrayExpr;
 import jkind.lustre.ArrayUpdateExpr;
 import jkind.lustre.BinaryExpr;
+import jkind.lustre.BinaryOp;
 import jkind.lustre.BoolExpr;
 import jkind.lustre.CastExpr;
 import jkind.lustre.CondactExpr;
@@ -19,6 +24,7 @@ import jkind.lustre.IntExpr;
 import jkind.lustre.NamedType;
 import jkind.lustre.Node;
 import jkind.lustre.NodeCallExpr;
+import jkind.lustre.Program;
 import jkind.lustre.RealExpr;
 import jkind.lustre.RecordAccessExpr;
 import jkind.lustre.RecordExpr;
@@ -32,17 +38,28 @@ import jkind.lustre.visitors.ExprVisitor;
 import jkind.solvers.smtinterpol.ScriptUser;
 import jkind.util.Util;
 import de.uni_freiburg.informatik.ultimate.logic.Script;
+import de.uni_freiburg.informatik.ultimate.logic.Sort;
 import de.uni_freiburg.informatik.ultimate.logic.Term;
 
+/**
+ * Translation of a node into SMTInterpol terms over linear arithmetic.
+ * Non-linear multiplication, division, and modulus are translated to
+ * uninterpreted functions of their operands, which over-approximates the
+ * node: proofs remain sound, but counterexamples may be spurious.
+ */
 public class Lustre2Term extends ScriptUser implements ExprVisitor<Term> {
 	private static final String INIT = "%init";
+	private static final String NONLINEAR = "%nl.";
 	
 	private final Node node;
+	private final ConstantAnalyzer constantAnalyzer;
+	private final Set<String> uninterpreted = new HashSet<>();
 	private boolean pre = false;
 
 	public Lustre2Term(Script script, Node node) {
 		super(script);
 		this.node = node;
+		this.constantAnalyzer = new ConstantAnalyzer(new Program(node));
 	}
 
 	public Term getInit() {
@@ -62,6 +79,23 @@ public class Lustre2Term extends ScriptUser implements ExprVisitor<Term> {
 		return "$" + name;
 	}
 
+	/**
+	 * The operator whose non-linear applications are abstracted by the
+	 * uninterpreted function with the given name, or null if there is none
+	 */
+	public static BinaryOp decodeNonlinear(String name) {
+		if (!name.startsWith(NONLINEAR)) {
+			return null;
+		}
+		String op = name.substring(NONLINEAR.length(), name.lastIndexOf('.'));
+		return BinaryOp.valueOf(op);
+	}
+
+	/** Whether some operation has been replaced by an uninterpreted function */
+	public boolean isAbstracted() {
+		return !uninterpreted.isEmpty();
+	}
+
 	private VarDecl encode(VarDecl vd) {
 		return new VarDecl(encode(vd.id), vd.type);
 	}
@@ -110,6 +144,16 @@ public class Lustre2Term extends ScriptUser implements ExprVisitor<Term> {
 		return or(term(encode(property)), term(INIT));
 	}
 
+	/** Translate an expression without pre over the unprimed variables */
+	public Term encodeState(Expr expr) {
+		pre = true;
+		try {
+			return expr.accept(this);
+		} finally {
+			pre = false;
+		}
+	}
+
 	private String prime(String str) {
 		return str + "'";
 	}
@@ -146,6 +190,20 @@ public class Lustre2Term extends ScriptUser implements ExprVisitor<Term> {
 			}
 			return ite(term(INIT), left, right);
 
+		case MULTIPLY:
+			if (!isConstant(e.left) && !isConstant(e.right)) {
+				return uninterpreted(e.op, left, right);
+			}
+			return term(e.op.toString(), left, right);
+
+		case DIVIDE:
+		case INT_DIVIDE:
+		case MODULUS:
+			if (!isConstant(e.right)) {
+				return uninterpreted(e.op, left, right);
+			}
+			return term(e.op.toString(), left, right);
+
 		default:
 			return term(e.op.toString(), left, right);
 		}
@@ -242,6 +300,19 @@ public class Lustre2Term extends ScriptUser implements ExprVisitor<Term> {
 		}
 	}
 
+	private boolean isConstant(Expr e) {
+		return e.accept(constantAnalyzer);
+	}
+
+	private Term uninterpreted(BinaryOp op, Term left, Term right) {
+		Sort sort = left.getSort();
+		String name = NONLINEAR + op.name() + "." + sort.getName();
+		if (uninterpreted.add(name)) {
+			script.declareFun(name, new Sort[] { sort, right.getSort() }, sort);
+		}
+		return term(name, left, right);
+	}
+
 	private Term typeConstraint(String id, Type type) {
 		if (type instanceof SubrangeIntType) {
 			return subrangeConstraint(id, (SubrangeIntType) type);
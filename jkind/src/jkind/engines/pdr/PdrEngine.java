@@ -1,10 +1,15 @@
 package jkind.engines.pdr;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
 import jkind.JKindSettings;
+import jkind.cache.CheckpointStore;
 import jkind.engines.Director; 
 import jkind.engines.Engine;
 import jkind.engines.StopException; 
@@ -14,28 +19,43 @@ import jkind.engines.messages.InvalidMessage;
 import jkind.engines.messages.InvariantMessage;
 import jkind.engines.messages.UnknownMessage;
 import jkind.engines.messages.ValidMessage;
+import jkind.lustre.Expr;
 import jkind.translation.Specification;
 
+/**
+ * Runs a subengine per property, or per group of properties with overlapping
+ * cones in joint mode, on a work-stealing pool of pdrMax threads. Subengines
+ * whose properties are answered before they start do nothing. Lemmas
+ * blocked at FRAME_INF are published to the director's lemma store, which
+ * passes them on to the other subengines along with the invariants found by
+ * other engines.
+ */
 public class PdrEngine extends Engine {
 	public static final String NAME = "pdr";
 	private final ConcurrentMap<String, PdrSubengine> subengines = new ConcurrentHashMap<>();
+	private final ForkJoinPool pool;
+	private final CheckpointStore checkpoints;
 	private int scratchCounter = 1;
 
 	public PdrEngine(Specification spec, JKindSettings settings, Director director) {
 		super(NAME, spec, settings, director);
+		this.pool = new ForkJoinPool(settings.pdrMax);
+		if (settings.pdrCheckpoint != null) {
+			this.checkpoints = new CheckpointStore(settings.pdrCheckpoint);
+		} else {
+			this.checkpoints = null;
+		}
 	}
 
 	@Override
 	protected void main() {
 		try {
-			while (!done()) {
-				processMessagesAndWaitUntil(() -> done() || canSpawnSubengine());
-				if (canSpawnSubengine()) {
-					spawnSubengine();
-				}
-			}
+			spawnSubengines();
+			processMessagesAndWaitUntil(this::done);
 		} catch (StopException se) {
 			subengines.forEach((name, subengine) -> subengine.cancel());
+		} finally {
+			pool.shutdown();
 		}
 	}
 
@@ -43,25 +63,38 @@ public class PdrEngine extends Engine {
 		return throwable != null || (properties.isEmpty() && subengines.isEmpty());
 	}
 
-	private boolean canSpawnSubengine() {
-		return subengines.size() < settings.pdrMax && !properties.isEmpty();
+	private void spawnSubengines() {
+		if (settings.pdrJoint) {
+			for (List<String> group : spec.dependencyMap.partition(properties)) {
+				spawnSubengine(group);
+			}
+		} else {
+			for (String prop : properties) {
+				spawnSubengine(Collections.singletonList(prop));
+			}
+		}
+		properties.clear();
 	}
 
-	private void spawnSubengine() {
-		String prop = properties.remove(0);
+	private void spawnSubengine(List<String> props) {
 		String scratch = settings.scratch ? getScratchBase() + scratchCounter++ : null;
-		PdrSubengine subengine = new PdrSubengine(prop, spec, scratch, this, director);
-		subengines.put(prop, subengine);
-		subengine.start();
+		PdrSubengine subengine = new PdrSubengine(props, spec, scratch,
+				settings.pdrGeneralizer, checkpoints, this, director);
+		for (String prop : props) {
+			subengines.put(prop, subengine);
+		}
+		pool.execute(subengine);
 	}
 
-	public void reportUnknown(String prop) {
-		subengines.remove(prop);
-		director.receiveMessage(new UnknownMessage(getName(), prop));
+	public void reportUnknown(List<String> props) {
+		subengines.keySet().removeAll(props);
+		director.receiveMessage(new UnknownMessage(getName(), new ArrayList<>(props)));
+		wakeUp();
 	}
 
 	public void reportThrowable(Throwable throwable) {
 		this.throwable = throwable;
+		wakeUp();
 	}
 
 	@Override
@@ -77,8 +110,20 @@ public class PdrEngine extends Engine {
 		cancel(im.invalid);
 	}
 
+	/**
+	 * Offer invariants from every engine, the subengines included, to the
+	 * subengines as lemmas at FRAME_INF. Each keeps a lemma only if its slice
+	 * contains the lemma's variables and the lemma is not its own.
+	 */
 	@Override
 	protected void handleMessage(InvariantMessage im) {
+		Set<PdrSubengine> running = new HashSet<>(subengines.values());
+		for (Expr invariant : im.invariants) {
+			SharedLemma lemma = new SharedLemma(invariant, im.k);
+			for (PdrSubengine subengine : running) {
+				subengine.importLemma(lemma);
+			}
+		}
 	}
 
 	@Override
@@ -92,12 +137,19 @@ public class PdrEngine extends Engine {
 	}
 
 	private void cancel(List<String> cancel) {
-		for (String prop : new HashSet<>(subengines.keySet())) {
-			if (cancel.contains(prop)) {
-				PdrSubengine subengine = subengines.remove(prop);
-				if (subengine != null) {
-					subengine.cancel();
-				}
+		Set<PdrSubengine> affected = new HashSet<>();
+		for (String prop : cancel) {
+			PdrSubengine subengine = subengines.remove(prop);
+			if (subengine != null) {
+				affected.add(subengine);
+			}
+		}
+
+		for (PdrSubengine subengine : affected) {
+			if (subengines.containsValue(subengine)) {
+				subengine.dropProperties(cancel);
+			} else {
+				subengine.cancel();
 			}
 		}
 		properties.removeAll(cancel);
@@ -105,9 +157,10 @@ public class PdrEngine extends Engine {
 	
 	@Override
 	public void stopEngine() {
-		for (PdrSubengine subengine : subengines.values()) {
+		for (PdrSubengine subengine : new HashSet<>(subengines.values())) {
 			subengine.cancel();
 		}
 		properties.clear();
+		wakeUp();
 	}
 }
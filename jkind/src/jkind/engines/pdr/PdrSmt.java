@@ -5,6 +5,7 @@ import static java.util.stream.Collectors.toList;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,14 +43,23 @@ public class PdrSmt extends ScriptUser {
 	private final Term[] primeAbstract;
 	private final Term[] prime;
 
+	private final Lustre2Term lustre2Term;
+	private final boolean abstracted;
 	private final Term I;
-	private final Term P;
+	private final Map<String, Term> P = new HashMap<>();
 
 	private final Set<Term> predicates = new HashSet<>();
 
 	private final NameGenerator abstractAssertions = new NameGenerator("abstract");
 
-	public PdrSmt(Node node, List<Frame> F, String property, String scratchBase, 
+	/*
+	 * Substitutions from the base variables to each other variable vector,
+	 * kept for the life of the solver since predicates, cubes and properties
+	 * are substituted into the same vectors over and over
+	 */
+	private final Map<Term[], Subst> substitutions = new IdentityHashMap<>();
+
+	public PdrSmt(Node node, List<Frame> F, List<String> properties, String scratchBase,
 			TerminationRequest te) {
 		super(SmtInterpolUtil.getScript(scratchBase, te));
 		this.F = F;
@@ -60,7 +70,7 @@ public class PdrSmt extends ScriptUser {
 		script.setLogic(Logics.QF_UFLIRA);
 		script.setOption(":verbosity", 2);
 
-		Lustre2Term lustre2Term = new Lustre2Term(script, node);
+		this.lustre2Term = new Lustre2Term(script, node);
 		this.varDecls = lustre2Term.getVariables();
 
 		this.base = getVariables("");
@@ -70,12 +80,17 @@ public class PdrSmt extends ScriptUser {
 
 		this.I = lustre2Term.getInit();
 		defineTransitionRelation(lustre2Term.getTransition());
-		this.P = lustre2Term.encodeProperty(property);
+		this.abstracted = lustre2Term.isAbstracted();
+		for (String property : properties) {
+			P.put(property, lustre2Term.encodeProperty(property));
+		}
 
 		assertAbstract(T(baseAbstract, primeAbstract));
 
 		addPredicates(PredicateCollector.collect(I));
-		addPredicates(PredicateCollector.collect(P));
+		for (Term property : P.values()) {
+			addPredicates(PredicateCollector.collect(property));
+		}
 	}
 
 	private void assertAbstract(Term t) {
@@ -121,8 +136,24 @@ public class PdrSmt extends ScriptUser {
 		return;
 	}
 
-	public Cube getBadCube() {
-		return extractCube(checkSat(and(R(depth()), not(P))));
+	/**
+	 * Whether the transition relation over-approximates the node due to
+	 * non-linear operations, so that counterexamples may be spurious
+	 */
+	public boolean isAbstracted() {
+		return abstracted;
+	}
+
+	public Cube getBadCube(String property) {
+		return extractCube(checkSat(and(R(depth()), not(P.get(property)))));
+	}
+
+	/**
+	 * A property is proven once F_INF alone, which is inductive, excludes all
+	 * of its bad states
+	 */
+	public boolean isProven(String property) {
+		return checkSat(and(F.get(F.size() - 1).toTerm(script), not(P.get(property)))) == null;
 	}
 
 	private int depth() {
@@ -283,7 +314,7 @@ public class PdrSmt extends ScriptUser {
 		return new Frame(I);
 	}
 
-	public void refine(List<Cube> cubes) {
+	public void refine(List<Cube> cubes, String property) {
 		List<Term> pieces = new ArrayList<>();
 
 		Term[] vars = getVariables(StreamIndex.getSuffix(-1));
@@ -292,7 +323,7 @@ public class PdrSmt extends ScriptUser {
 			pieces.add(and(apply(cubes.get(i), vars), T(vars, nextVars)));
 			vars = nextVars;
 		}
-		pieces.add(and(apply(cubes.get(cubes.size() - 1), vars), not(P(vars))));
+		pieces.add(and(apply(cubes.get(cubes.size() - 1), vars), not(P(property, vars))));
 
 		Term[] interpolants = getInterpolants(pieces);
 
@@ -323,6 +354,7 @@ public class PdrSmt extends ScriptUser {
 		case SAT:
 			int length = terms.size() - 1;
 			SimpleModel extractedModel = extractModel(script.getModel(), length);
+			script.pop(1);
 			throw new CounterexampleException(length, extractedModel);
 
 		default:
@@ -360,6 +392,55 @@ public class PdrSmt extends ScriptUser {
 		return Term2Expr.disjunction(disjuncts);
 	}
 
+	/**
+	 * The literals of a non-initial cube as expressions, or null if the cube
+	 * cannot be shared
+	 */
+	public List<Expr> getLiterals(Cube cube) {
+		List<Expr> literals = new ArrayList<>();
+		for (Term literal : cube.getPLiterals()) {
+			if (literal == I) {
+				return null;
+			} else if (literal != not(I)) {
+				literals.add(Term2Expr.expr(literal));
+			}
+		}
+		return literals;
+	}
+
+	/** The predicates other than the initial state flag, as expressions */
+	public List<Expr> getPredicates() {
+		List<Expr> result = new ArrayList<>();
+		for (Term predicate : predicates) {
+			if (predicate != I) {
+				result.add(Term2Expr.expr(predicate));
+			}
+		}
+		return result;
+	}
+
+	/** Add the atoms of expressions over the current state as predicates */
+	public void importPredicates(List<Expr> exprs) {
+		for (Expr expr : exprs) {
+			addPredicates(PredicateCollector.collect(lustre2Term.encodeState(expr)));
+		}
+	}
+
+	/**
+	 * Translate a cube shared by another subengine, adding its atoms as
+	 * predicates so that it can be expressed in the abstraction
+	 */
+	public Cube importCube(List<Expr> literals) {
+		Cube cube = new Cube();
+		for (Expr literal : literals) {
+			Term term = lustre2Term.encodeState(literal);
+			addPredicates(PredicateCollector.collect(term));
+			cube.addPLiteral(term);
+		}
+		cube.addPLiteral(not(I));
+		return cube;
+	}
+
 	private Term T(Term[] variables1, Term[] variables2) {
 		return script.term(Relation.T, concat(variables1, variables2));
 	}
@@ -371,8 +452,8 @@ public class PdrSmt extends ScriptUser {
 		return result;
 	}
 
-	private Term P(Term[] vars) {
-		return subst(P, base, vars);
+	private Term P(String property, Term[] vars) {
+		return apply(P.get(property), vars);
 	}
 
 	public Term[] getVariables(String suffix) {
@@ -405,11 +486,15 @@ public class PdrSmt extends ScriptUser {
 	}
 
 	private Term prime(Term term) {
-		return subst(term, base, prime);
+		return apply(term, prime);
 	}
 
 	private Term apply(Term term, Term[] arguments) {
-		return subst(term, base, arguments);
+		if (arguments == base) {
+			return term;
+		}
+		return substitutions.computeIfAbsent(arguments, args -> new Subst(script, base, args))
+				.apply(term);
 	}
 
 	private Term apply(Cube cube, Term[] arguments) {
@@ -1,11 +1,18 @@
 package jkind.engines.pdr;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-import jkind.analysis.LinearChecker;
+import jkind.cache.CheckpointStore;
+import jkind.cache.PdrCheckpoint;
 import jkind.engines.Director;
 import jkind.engines.StopException;
 import jkind.engines.messages.InvalidMessage;
@@ -15,11 +22,13 @@ import jkind.engines.messages.ValidMessage;
 import jkind.engines.pdr.PdrSmt.Option;
 import jkind.lustre.Expr;
 import jkind.lustre.Node;
+import jkind.lustre.VarDecl;
 import jkind.lustre.builders.NodeBuilder;
 import jkind.slicing.LustreSlicer;
 import jkind.solvers.Model;
 import jkind.solvers.smtinterpol.TerminationRequestImpl;
 import jkind.translation.Specification;
+import jkind.util.Util;
 import de.uni_freiburg.informatik.ultimate.logic.Term;
 
 /**
@@ -30,27 +39,54 @@ import de.uni_freiburg.informatik.ultimate.logic.Term;
  * SMT extension based on
  * "IC3 Modulo Theories via Implicit Predicate Abstraction" by Alessandro
  * Cimatti, Alberto Griggio, Sergio Mover, and Stefano Tonetta
+ * 
+ * Several properties may share one frame sequence. Blocked cubes do not
+ * depend on the property whose bad cube led to them, so each property is
+ * checked against the same frames and reported as soon as it is decided.
  */
-public class PdrSubengine extends Thread {
+public class PdrSubengine implements Runnable {
 	private final Node node;
-	private final String prop;
 	private final PdrEngine parent;
 	private final Director director;
 
+	/* Properties still being checked, and those answered by other engines */
+	private final List<String> props;
+	private final Set<String> resolved = ConcurrentHashMap.newKeySet();
+
+	/* Lemmas from the lemma store, imported into F_INF by this subengine's thread */
+	private final Set<String> variables = new HashSet<>();
+	private final Queue<SharedLemma> imports = new ConcurrentLinkedQueue<>();
+	private final Set<Expr> sent = Collections.synchronizedSet(
+			Collections.newSetFromMap(new IdentityHashMap<>()));
+
+	/*
+	 * Imported lemmas may only be k-inductive, and so then are the invariants
+	 * derived from them. This is the largest such k so far.
+	 */
+	private int k = 1;
+
 	private final List<Frame> F = new ArrayList<>();
 	private final String scratchBase;
 	private PdrSmt Z;
+	private final String generalizerName;
+	private Generalizer generalizer;
+	private final CheckpointStore checkpoints;
 
 	private volatile boolean cancel = false;
 	private TerminationRequestImpl term = new TerminationRequestImpl();
 	
-	public PdrSubengine(String prop, Specification spec, String scratchBase, PdrEngine parent,
+	public PdrSubengine(List<String> props, Specification spec, String scratchBase,
+			String generalizerName, CheckpointStore checkpoints, PdrEngine parent,
 			Director director) {
-		super("pdr-" + prop);
-		this.prop = prop;
-		Node single = new NodeBuilder(spec.node).clearProperties().addProperty(prop).build();
-		this.node = LustreSlicer.slice(single, spec.dependencyMap);
+		this.props = new ArrayList<>(props);
+		Node sliced = new NodeBuilder(spec.node).clearProperties().addProperties(props).build();
+		this.node = LustreSlicer.slice(sliced, spec.dependencyMap);
+		for (VarDecl vd : Util.getVarDecls(node)) {
+			variables.add(vd.id);
+		}
 		this.scratchBase = scratchBase;
+		this.generalizerName = generalizerName;
+		this.checkpoints = checkpoints;
 		this.parent = parent;
 		this.director = director;
 	}
@@ -60,52 +96,111 @@ public class PdrSubengine extends Thread {
 		cancel = true;
 	}
 
+	/** Stop checking properties which have been answered elsewhere */
+	public void dropProperties(List<String> answered) {
+		resolved.addAll(answered);
+	}
+
+	/**
+	 * Accept a lemma if this subengine's slice contains all of its variables.
+	 * The subengine's own invariants come back from the lemma store as the
+	 * same expressions, and are skipped.
+	 */
+	public void importLemma(SharedLemma lemma) {
+		if (sent.remove(lemma.invariant)) {
+			return;
+		}
+		if (variables.containsAll(lemma.variables)) {
+			imports.add(lemma);
+		}
+	}
+
 	@Override
 	public void run() {
-		if (!LinearChecker.isLinear(this.node)) {
-			parent.reportUnknown(prop);
+		if (cancel) {
+			parent.reportUnknown(props);
 			return;
 		}
 		
-		Z = new PdrSmt(node, F, prop, scratchBase, term);
-		Z.comment("Checking property: " + prop);
+		Z = new PdrSmt(node, F, props, scratchBase, term);
+		Z.comment("Checking properties: " + props);
+		generalizer = Generalizer.create(generalizerName, Z, this);
 
 		// Create F_INF and F[0]
 		F.add(new Frame());
 		addFrame(Z.createInitialFrame());
 
+		// Properties which may still have bad cubes at the current depth
+		List<String> pending = new ArrayList<>(props);
+
 		try {
+			resumeCheckpoint();
+
 			while (true) {
-				Cube c = Z.getBadCube();
-				if (c != null) {
-					blockCube(new TCube(c, depth()));
-				} else {
+				importLemmas();
+				props.removeAll(resolved);
+				pending.retainAll(props);
+				if (props.isEmpty()) {
+					deleteCheckpoint();
+					return;
+				}
+
+				if (pending.isEmpty()) {
 					addFrame(new Frame());
 					Z.comment("Number of frames: " + F.size());
 					List<Expr> invariants = propogateBlockedCubes();
 					if (invariants != null) {
-						sendValidAndInvariants(invariants);
+						sendValidAndInvariants(props, invariants);
+						deleteCheckpoint();
 						return;
 					}
+					sendProven();
+					saveCheckpoint();
+					pending.addAll(props);
+					continue;
+				}
+
+				String prop = pending.get(0);
+				Cube c = Z.getBadCube(prop);
+				if (c == null) {
+					pending.remove(prop);
+				} else {
+					try {
+						blockCube(new TCube(c, depth()), prop);
+					} catch (CounterexampleException cex) {
+						Z.comment("Found counterexample for " + prop + " of length "
+								+ cex.getLength());
+						if (Z.isAbstracted()) {
+							// May be spurious, leave it for the other engines
+							parent.reportUnknown(Collections.singletonList(prop));
+						} else {
+							sendInvalid(prop, cex.getLength(), cex.getModel());
+						}
+						props.remove(prop);
+						pending.remove(prop);
+					}
 				}
 			}
-		} catch (CounterexampleException cex) {
-			Z.comment("Found counterexample of length " + cex.getLength());
-			sendInvalid(cex.getLength(), cex.getModel());
-			return;
 		} catch (StopException | OutOfMemoryError e) {
-			parent.reportUnknown(prop);
+			parent.reportUnknown(props);
 			return;
 		} catch(de.uni_freiburg.informatik.ultimate.logic.SMTLIBException ex){
-			parent.reportThrowable(ex);
+			// SMTInterpol reports a termination request during interpolation as a timeout
+			if (cancel) {
+				parent.reportUnknown(props);
+			} else {
+				parent.reportThrowable(ex);
+			}
 			return;
 		}catch (Throwable t) {
 			parent.reportThrowable(t);
 			return;
+		} finally {
+			Z.comment(generalizer.getStatistics());
 		}
 	}
 	
-	private void blockCube(TCube s0) {
+	private void blockCube(TCube s0, String prop) {
 		PriorityQueue<TCube> Q = new PriorityQueue<>();
 		Q.add(s0);
 
@@ -114,7 +209,7 @@ public class PdrSubengine extends Thread {
 			TCube s = Q.poll();
 
 			if (s.getFrame() == 0) {
-				Z.refine(getCubes(s.getCube()));
+				Z.refine(getCubes(s.getCube()), prop);
 				Z.comment("Refined abstraction");
 				return;
 			}
@@ -124,7 +219,7 @@ public class PdrSubengine extends Thread {
 				TCube z = Z.solveRelative(s, Option.EXTRACT_MODEL);
 				if (z.getFrame() != TCube.FRAME_NULL) {
 					// Cube 's' was blocked by image of predecessor
-					generalize(z);
+					generalizer.generalize(z);
 
 					// Push z as far forward as possible
 					while (z.getFrame() < depth() - 1) {
@@ -154,10 +249,8 @@ public class PdrSubengine extends Thread {
 	private boolean isBlocked(TCube s) {
 		// Check syntactic subsumption (faster than SAT):
 		for (int d = s.getFrame(); d < F.size(); d++) {
-			for (Cube c : F.get(d).getCubes()) {
-				if (c.subsumes(s.getCube())) {
-					return true;
-				}
+			if (F.get(d).hasSubsuming(s.getCube())) {
+				return true;
 			}
 		}
 
@@ -165,18 +258,7 @@ public class PdrSubengine extends Thread {
 		return Z.isBlocked(s);
 	}
 
-	private void generalize(TCube s) {
-		List<Term> pLiterals = new ArrayList<>(s.getCube().getPLiterals());
-
-		for (Term p : pLiterals) {
-			s.getCube().removePLiteral(p);
-			if (Z.isInitial(s.getCube()) || Z.solveRelative(s).getFrame() == TCube.FRAME_NULL) {
-				s.getCube().addPLiteral(p);
-			}
-		}
-	}
-
-	private int depth() {
+	int depth() {
 		return F.size() - 2;
 	}
 
@@ -218,17 +300,147 @@ public class PdrSubengine extends Thread {
 		}
 	}
 
-	private void addBlockedCube(TCube s) {
+	/** Lemmas already blocked here or which cannot be translated are skipped */
+	private void importLemmas() {
+		Frame inf = F.get(F.size() - 1);
+		SharedLemma lemma;
+		while ((lemma = imports.poll()) != null) {
+			Cube cube;
+			try {
+				cube = Z.importCube(lemma.literals);
+			} catch (IllegalArgumentException e) {
+				continue;
+			}
+
+			if (!inf.hasSubsuming(cube)) {
+				inf.add(cube);
+				k = Math.max(k, lemma.k);
+				Z.comment("Imported [inf] : " + cube);
+			}
+		}
+	}
+
+	/**
+	 * Restore the predicates and frames saved by an earlier run on the same
+	 * node, if any. The frames are only installed once all of them have been
+	 * translated.
+	 * 
+	 * A checkpoint is not trusted. Restored F_INF cubes are kept only if they
+	 * are inductive together, checked by dropping those which are not until a
+	 * fixpoint is reached. Restored frame cubes, and the dropped F_INF cubes,
+	 * go to F[1] where they are never part of a reported invariant, and
+	 * propagation promotes those which can be proven to hold further.
+	 */
+	private void resumeCheckpoint() {
+		if (checkpoints == null) {
+			return;
+		}
+
+		PdrCheckpoint checkpoint = checkpoints.load(node);
+		if (checkpoint == null) {
+			return;
+		}
+
+		List<Cube> cubes = new ArrayList<>();
+		List<Cube> inf = new ArrayList<>();
+		try {
+			Z.importPredicates(checkpoint.predicates);
+			for (List<List<Expr>> frame : checkpoint.frames) {
+				for (List<Expr> literals : frame) {
+					cubes.add(Z.importCube(literals));
+				}
+			}
+			for (List<Expr> literals : checkpoint.inf) {
+				inf.add(Z.importCube(literals));
+			}
+		} catch (IllegalArgumentException e) {
+			Z.comment("Unable to resume from checkpoint: " + e.getMessage());
+			return;
+		}
+
+		Frame infFrame = F.get(F.size() - 1);
+		for (Cube cube : inf) {
+			if (!Z.isInitial(cube)) {
+				infFrame.add(cube);
+			}
+		}
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Cube cube : new ArrayList<>(infFrame.getCubes())) {
+				checkCancel();
+				TCube s = Z.solveRelative(new TCube(cube, TCube.FRAME_INF), Option.NO_IND);
+				if (s.getFrame() != TCube.FRAME_INF) {
+					infFrame.remove(cube);
+					cubes.add(cube);
+					changed = true;
+				}
+			}
+		}
+
+		for (int i = 0; i < Math.max(1, checkpoint.frames.size()); i++) {
+			addFrame(new Frame());
+		}
+		for (Cube cube : cubes) {
+			if (!Z.isInitial(cube)) {
+				F.get(1).add(cube);
+			}
+		}
+
+		for (Cube cube : infFrame.getCubes()) {
+			sendInvariant(Z.getInvariant(cube));
+		}
+		Z.comment("Resumed from checkpoint with " + F.size() + " frames and "
+				+ infFrame.getCubes().size() + " of " + inf.size() + " F_INF cubes");
+	}
+
+	/**
+	 * Save the predicates and frames at the start of a new frame, when every
+	 * frame below it excludes the bad states of all remaining properties
+	 */
+	private void saveCheckpoint() {
+		if (checkpoints == null) {
+			return;
+		}
+
+		try {
+			PdrCheckpoint checkpoint = new PdrCheckpoint();
+			checkpoint.predicates.addAll(Z.getPredicates());
+			for (int k = 1; k <= depth(); k++) {
+				checkpoint.frames.add(getLiterals(F.get(k)));
+			}
+			checkpoint.inf.addAll(getLiterals(F.get(F.size() - 1)));
+			checkpoints.store(node, checkpoint);
+		} catch (IllegalArgumentException e) {
+			Z.comment("Unable to save checkpoint: " + e.getMessage());
+		}
+	}
+
+	private List<List<Expr>> getLiterals(Frame frame) {
+		List<List<Expr>> result = new ArrayList<>();
+		for (Cube cube : frame.getCubes()) {
+			List<Expr> literals = Z.getLiterals(cube);
+			if (literals == null) {
+				throw new IllegalArgumentException("initial cube " + cube);
+			}
+			result.add(literals);
+		}
+		return result;
+	}
+
+	private void deleteCheckpoint() {
+		if (checkpoints != null) {
+			checkpoints.delete(node);
+		}
+	}
+
+	void addBlockedCube(TCube s) {
 		int k = Math.min(s.getFrame(), depth() + 1);
 
 		// Remove subsumed clauses:
 		for (int d = 1; d <= k; d++) {
-			Set<Cube> cubes = F.get(d).getCubes();
-			for (Cube c : new ArrayList<>(cubes)) {
-				if (s.getCube().subsumes(c)) {
-					cubes.remove(c);
-				}
-			}
+			F.get(d).removeSubsumedBy(s.getCube());
 		}
 
 		// Store clause
@@ -237,8 +449,7 @@ public class PdrSubengine extends Thread {
 
 		// Report if invariant
 		if (s.getFrame() == TCube.FRAME_INF) {
-			Expr invariant = Z.getInvariant(s.getCube());
-			sendInvariant(invariant);
+			sendInvariant(Z.getInvariant(s.getCube()));
 		}
 	}
 
@@ -252,19 +463,39 @@ public class PdrSubengine extends Thread {
 		return result;
 	}
 
-	private void sendValidAndInvariants(List<Expr> invariants) {
+	/**
+	 * Report the properties whose bad states are already excluded by F_INF,
+	 * without waiting for the remaining frames to converge
+	 */
+	private void sendProven() {
+		List<String> proven = new ArrayList<>();
+		for (String prop : props) {
+			if (Z.isProven(prop)) {
+				proven.add(prop);
+			}
+		}
+
+		if (!proven.isEmpty()) {
+			props.removeAll(proven);
+			sendValidAndInvariants(proven, getInvariants(F.size() - 1));
+		}
+	}
+
+	private void sendValidAndInvariants(List<String> valid, List<Expr> invariants) {
 		Itinerary itinerary = director.getValidMessageItinerary();
-		director.broadcast(new ValidMessage(parent.getName(), prop, 1, getRuntime(), invariants, null, itinerary, null));
-		director.broadcast(new InvariantMessage(invariants));
+		director.broadcast(new ValidMessage(parent.getName(), new ArrayList<>(valid), k, getRuntime(), invariants, null, itinerary, null));
+		sent.addAll(invariants);
+		director.broadcast(new InvariantMessage(invariants, k));
 	}
 
-	private void sendInvalid(int length, Model model) {
+	private void sendInvalid(String prop, int length, Model model) {
 		Itinerary itinerary = director.getInvalidMessageItinerary();
 		director.broadcast(new InvalidMessage(parent.getName(), prop, length, model, itinerary));
 	}
 
 	private void sendInvariant(Expr invariant) {
-		director.broadcast(new InvariantMessage(invariant));
+		sent.add(invariant);
+		director.broadcast(new InvariantMessage(invariant, k));
 	}
 	
 	private double getRuntime() {
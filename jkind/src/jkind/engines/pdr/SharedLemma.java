@@ -0,0 +1,43 @@
+package jkind.engines.pdr;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jkind.engines.invariant.LemmaStore;
+import jkind.lustre.Expr;
+import jkind.lustre.UnaryExpr;
+import jkind.lustre.UnaryOp;
+import jkind.slicing.Dependency;
+import jkind.slicing.DependencyVisitor;
+
+/**
+ * An invariant published by any engine, as a cube to block at FRAME_INF in a
+ * form which subengines can translate into their own solvers. The literals
+ * are the negations of the invariant's disjuncts, over the current state and
+ * excluding the non-initial literal. The invariant is k-inductive together
+ * with those published before it.
+ */
+public class SharedLemma {
+	public final Expr invariant;
+	public final List<Expr> literals = new ArrayList<>();
+	public final Set<String> variables = new HashSet<>();
+	public final int k;
+
+	public SharedLemma(Expr invariant, int k) {
+		this.invariant = invariant;
+		this.k = k;
+		for (Expr disjunct : LemmaStore.getDisjuncts(invariant)) {
+			if (disjunct instanceof UnaryExpr && ((UnaryExpr) disjunct).op == UnaryOp.NOT) {
+				literals.add(((UnaryExpr) disjunct).expr);
+			} else {
+				literals.add(new UnaryExpr(UnaryOp.NOT, disjunct));
+			}
+		}
+
+		for (Dependency dep : DependencyVisitor.get(invariant)) {
+			variables.add(dep.name);
+		}
+	}
+}
@@ -17,7 +17,7 @@ public class Cons extends Sexp {
 	}
 
 	public Cons(String head, List<? extends Sexp> args) {
-		this.head = new Symbol(head);
+		this.head = Symbol.intern(head);
 		this.args = args;
 	}
 
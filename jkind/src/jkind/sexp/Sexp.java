@@ -4,6 +4,9 @@ import java.math.BigInteger;
 
 
 public abstract class Sexp {
+	private static final Symbol TRUE = new Symbol("true");
+	private static final Symbol FALSE = new Symbol("false");
+
 	protected abstract void toBuilder(StringBuilder sb);
 	
 	public static Sexp fromInt(int i) {
@@ -23,6 +26,6 @@ public abstract class Sexp {
 	}
 
 	public static Sexp fromBoolean(boolean b) {
-		return new Symbol(b ? "true" : "false");
+		return b ? TRUE : FALSE;
 	}
 }
@@ -1,13 +1,39 @@
 package jkind.sexp;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Symbol extends Sexp {
+	/*
+	 * Symbols which recur in every query (operators, relation names) are
+	 * shared through this table so they are allocated once. The table is
+	 * cleared at the start of each run and stops growing once it holds
+	 * MAX_INTERNED symbols, after which new symbols are simply not shared.
+	 */
+	private static final int MAX_INTERNED = 1 << 12;
+	private static final Map<String, Symbol> interned = new ConcurrentHashMap<>();
+
 	public final String str;
 
 	public Symbol(String sym) {
 		this.str = sym;
 	}
 
+	public static Symbol intern(String sym) {
+		Symbol symbol = interned.get(sym);
+		if (symbol == null) {
+			if (interned.size() >= MAX_INTERNED) {
+				return new Symbol(sym);
+			}
+			symbol = interned.computeIfAbsent(sym, Symbol::new);
+		}
+		return symbol;
+	}
+
+	public static void clearInterned() {
+		interned.clear();
+	}
+
 	@Override
 	public String toString() {
 		return str;
@@ -1,8 +1,10 @@
 package jkind.slicing;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -134,4 +136,41 @@ public class DependencyMap {
 		}
 		return result;
 	}
+
+	/**
+	 * Group the given roots so that roots whose dependencies overlap, directly
+	 * or through other roots, end up in the same group
+	 */
+	public List<List<String>> partition(List<String> roots) {
+		Map<String, String> parent = new HashMap<>();
+		Map<Dependency, String> owner = new HashMap<>();
+		for (String root : roots) {
+			parent.put(root, root);
+			for (Dependency dep : get(root)) {
+				String other = owner.putIfAbsent(dep, root);
+				if (other != null) {
+					parent.put(find(parent, other), find(parent, root));
+				}
+			}
+		}
+
+		Map<String, List<String>> groups = new LinkedHashMap<>();
+		for (String root : roots) {
+			groups.computeIfAbsent(find(parent, root), r -> new ArrayList<>()).add(root);
+		}
+		return new ArrayList<>(groups.values());
+	}
+
+	private static String find(Map<String, String> parent, String root) {
+		String result = root;
+		while (!parent.get(result).equals(result)) {
+			result = parent.get(result);
+		}
+		while (!root.equals(result)) {
+			String next = parent.get(root);
+			parent.put(root, result);
+			root = next;
+		}
+		return result;
+	}
 }
@@ -0,0 +1,63 @@
+package jkind.slicing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits properties into groups which can be analyzed independently. Each
+ * property is placed with the group whose cone of influence is smallest once
+ * the property is added, ties going to the group with fewer properties. Since
+ * the work for a group follows the size of its cone, this favors groups which
+ * already cover the property's cone while still spreading the work over all
+ * groups.
+ */
+public class PropertyPartitioner {
+	public static List<List<String>> partition(List<String> properties, DependencyMap dependencyMap,
+			int max) {
+		List<String> sorted = new ArrayList<>(properties);
+		sorted.sort(Comparator.comparingInt((String p) -> size(dependencyMap.get(p))).reversed());
+
+		List<List<String>> groups = new ArrayList<>();
+		List<DependencySet> cones = new ArrayList<>();
+		for (int i = 0; i < Math.min(max, properties.size()); i++) {
+			groups.add(new ArrayList<>());
+			cones.add(new DependencySet());
+		}
+
+		for (String prop : sorted) {
+			DependencySet cone = dependencyMap.get(prop);
+			int best = 0;
+			int bestCost = Integer.MAX_VALUE;
+			for (int i = 0; i < groups.size(); i++) {
+				int cost = unionSize(cones.get(i), cone);
+				if (cost < bestCost || (cost == bestCost && groups.get(i).size() < groups.get(best).size())) {
+					best = i;
+					bestCost = cost;
+				}
+			}
+			groups.get(best).add(prop);
+			cones.get(best).addAll(cone);
+		}
+
+		/* Preserve the original property order within each group */
+		for (List<String> group : groups) {
+			group.sort(Comparator.comparingInt(properties::indexOf));
+		}
+		return groups;
+	}
+
+	private static int size(DependencySet set) {
+		return set.getSet().size();
+	}
+
+	private static int unionSize(DependencySet set1, DependencySet set2) {
+		int size = size(set1);
+		for (Dependency dep : set2) {
+			if (!set1.contains(dep)) {
+				size++;
+			}
+		}
+		return size;
+	}
+}
@@ -0,0 +1,378 @@
+package jkind.solvers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import jkind.JKindException;
+import jkind.lustre.Expr;
+import jkind.lustre.VarDecl;
+import jkind.sexp.Sexp;
+import jkind.sexp.Symbol;
+import jkind.translation.Relation;
+
+/**
+ * A solver which mirrors every command to several backend solvers and races
+ * them on each query, returning the first definitive (SAT or UNSAT) answer.
+ *
+ * Each backend processes its commands in order on its own thread. Once a race
+ * is decided, queued queries for it are skipped and losers which can cancel a
+ * single query are cancelled. Other losers, such as process-based solvers,
+ * finish the query in the background. Backends which fail are dropped, as are
+ * backends which rarely win once enough races have been run. The number of
+ * races won by each backend is recorded as a solver comment when the
+ * portfolio is stopped.
+ */
+public class PortfolioSolver extends Solver {
+	/* Races to run before backends are judged by their win share */
+	private static final int NARROW_AFTER_RACES = 50;
+	private static final double MIN_WIN_SHARE = 0.05;
+
+	private final List<Backend> backends = new ArrayList<>();
+	private int races = 0;
+
+	private static class Backend {
+		final String name;
+		final Solver solver;
+		final ExecutorService executor;
+		volatile Throwable failure;
+		int wins = 0;
+
+		/* The race whose query is being run, guarded by the backend */
+		Object running;
+
+		Backend(String name, Solver solver) {
+			this.name = name;
+			this.solver = solver;
+			this.executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "portfolio-" + name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	private static class Outcome {
+		final Backend backend;
+		final Result result;
+		final Throwable failure;
+
+		Outcome(Backend backend, Result result, Throwable failure) {
+			this.backend = backend;
+			this.result = result;
+			this.failure = failure;
+		}
+	}
+
+	public PortfolioSolver(List<String> names, List<Solver> solvers) {
+		if (names.size() != solvers.size() || solvers.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+
+		for (int i = 0; i < solvers.size(); i++) {
+			backends.add(new Backend(names.get(i), solvers.get(i)));
+		}
+	}
+
+	@Override
+	public void initialize() {
+		mirror(Solver::initialize);
+	}
+
+	@Override
+	public void assertSexp(Sexp sexp) {
+		mirror(solver -> solver.assertSexp(sexp));
+	}
+
+	@Override
+	public void assertInvariants(Collection<Expr> invariants, int k) {
+		mirror(solver -> solver.assertInvariants(invariants, k));
+	}
+
+	@Override
+	public void assertExpr(Expr expr, int k) {
+		mirror(solver -> solver.assertExpr(expr, k));
+	}
+
+	@Override
+	public void define(VarDecl decl) {
+		varTypes.put(decl.id, decl.type);
+		mirror(solver -> solver.define(decl));
+	}
+
+	@Override
+	public void define(Relation relation) {
+		mirror(solver -> solver.define(relation));
+	}
+
+	@Override
+	public Result query(Sexp sexp) {
+		return race(solver -> solver.query(sexp));
+	}
+
+	@Override
+	public Result query(List<Symbol> assumptions, Sexp sexp) {
+		return race(solver -> solver.query(assumptions, sexp));
+	}
+
+	@Override
+	public Result queryInvariants(Collection<Expr> invariants, int k) {
+		return race(solver -> solver.queryInvariants(invariants, k));
+	}
+
+	@Override
+	public Result unsatQuery(List<Symbol> activationLiterals, Sexp query) {
+		return race(solver -> solver.unsatQuery(activationLiterals, query));
+	}
+
+	@Override
+	protected Result quickCheckSat(List<Symbol> activationLiterals) {
+		return race(solver -> solver.quickCheckSat(activationLiterals));
+	}
+
+	@Override
+	public void push() {
+		mirror(Solver::push);
+		scopeDepth++;
+	}
+
+	@Override
+	public void pop() {
+		mirror(Solver::pop);
+		scopeDepth--;
+	}
+
+	@Override
+	public void comment(String str) {
+		mirror(solver -> solver.comment(str));
+	}
+
+	@Override
+	public boolean supports(Expr expr) {
+		return live().stream().allMatch(backend -> backend.solver.supports(expr));
+	}
+
+	/**
+	 * Each backend records the statistics and is stopped once done with its
+	 * queued commands. A query still running is interrupted, since nothing
+	 * waits for it anymore.
+	 */
+	@Override
+	public void stop() {
+		List<Backend> stopping;
+		synchronized (backends) {
+			stopping = new ArrayList<>(backends);
+			backends.clear();
+		}
+
+		String statistics = "Portfolio statistics: " + getStatistics(stopping);
+		for (Backend backend : stopping) {
+			synchronized (backend) {
+				if (backend.running != null) {
+					backend.solver.interrupt();
+				}
+			}
+
+			boolean submitted = submit(backend, () -> {
+				backend.solver.comment(statistics);
+				backend.solver.stop();
+			});
+			backend.executor.shutdown();
+			if (!submitted) {
+				backend.solver.stop();
+			}
+		}
+	}
+
+	/**
+	 * Backends are interrupted directly rather than through their command
+	 * queues, since the command they are running is the one to abandon
+	 */
+	@Override
+	public void interrupt() {
+		super.interrupt();
+		for (Backend backend : live()) {
+			backend.solver.interrupt();
+		}
+	}
+
+	/**
+	 * Number of races won by each backend still in the portfolio
+	 */
+	public List<String> getStatistics() {
+		return getStatistics(live());
+	}
+
+	private List<String> getStatistics(List<Backend> backends) {
+		List<String> result = new ArrayList<>();
+		for (Backend backend : backends) {
+			result.add(backend.name + ": " + backend.wins + "/" + races);
+		}
+		return result;
+	}
+
+	private List<Backend> live() {
+		synchronized (backends) {
+			return new ArrayList<>(backends);
+		}
+	}
+
+	private void mirror(Consumer<Solver> command) {
+		for (Backend backend : live()) {
+			submit(backend, () -> {
+				if (backend.failure != null) {
+					return;
+				}
+
+				try {
+					command.accept(backend.solver);
+				} catch (Throwable t) {
+					backend.failure = t;
+				}
+			});
+		}
+	}
+
+	private Result race(Function<Solver, Result> query) {
+		checkInterrupted();
+		List<Backend> entrants = live();
+		if (entrants.isEmpty()) {
+			throw new JKindException("Portfolio solver has been stopped");
+		}
+
+		BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+		AtomicBoolean decided = new AtomicBoolean(false);
+		Object race = new Object();
+		for (Backend backend : entrants) {
+			boolean submitted = submit(backend, () -> {
+				synchronized (backend) {
+					if (decided.get() || backend.failure != null) {
+						outcomes.add(new Outcome(backend, null, backend.failure));
+						return;
+					}
+					backend.running = race;
+				}
+
+				try {
+					outcomes.add(new Outcome(backend, query.apply(backend.solver), null));
+				} catch (Throwable t) {
+					backend.failure = t;
+					outcomes.add(new Outcome(backend, null, t));
+				} finally {
+					synchronized (backend) {
+						backend.running = null;
+						backend.solver.resumeQueries();
+					}
+				}
+			});
+			if (!submitted) {
+				outcomes.add(new Outcome(backend, null, new JKindException("Solver stopped")));
+			}
+		}
+
+		races++;
+		Result fallback = null;
+		Throwable failure = null;
+		try {
+			for (int i = 0; i < entrants.size(); i++) {
+				Outcome outcome = takeOutcome(outcomes);
+				if (outcome.result instanceof SatResult || outcome.result instanceof UnsatResult) {
+					decided.set(true);
+					outcome.backend.wins++;
+					cancelLosers(entrants, outcome.backend, race);
+					return outcome.result;
+				} else if (outcome.result != null && fallback == null) {
+					fallback = outcome.result;
+				} else if (outcome.failure != null) {
+					failure = outcome.failure;
+				}
+			}
+		} finally {
+			decided.set(true);
+			narrow();
+		}
+
+		checkInterrupted();
+		if (fallback != null) {
+			return fallback;
+		}
+		throw new JKindException("All portfolio solvers failed", failure);
+	}
+
+	/**
+	 * Cancel the query of each loser still running the decided race, if it
+	 * can cancel a single query without being interrupted
+	 */
+	private void cancelLosers(List<Backend> entrants, Backend winner, Object race) {
+		for (Backend backend : entrants) {
+			if (backend == winner || !backend.solver.canCancelQueries()) {
+				continue;
+			}
+
+			synchronized (backend) {
+				if (backend.running == race) {
+					backend.solver.cancelQueries();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns false if the backend has been stopped in the meantime
+	 */
+	private boolean submit(Backend backend, Runnable task) {
+		try {
+			backend.executor.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	private Outcome takeOutcome(BlockingQueue<Outcome> outcomes) {
+		try {
+			return outcomes.take();
+		} catch (InterruptedException e) {
+			throw new JKindException("Interrupted while waiting for portfolio solvers", e);
+		}
+	}
+
+	/**
+	 * Drop failed backends, and backends which have rarely won once enough
+	 * races have been run, always keeping at least one backend
+	 */
+	private void narrow() {
+		List<Backend> dropped = new ArrayList<>();
+		synchronized (backends) {
+			for (Backend backend : new ArrayList<>(backends)) {
+				if (backends.size() > 1 && shouldDrop(backend)) {
+					backends.remove(backend);
+					dropped.add(backend);
+				}
+			}
+		}
+
+		for (Backend backend : dropped) {
+			backend.executor.shutdownNow();
+			backend.solver.stop();
+		}
+		if (!dropped.isEmpty()) {
+			comment("Portfolio statistics: " + getStatistics());
+		}
+	}
+
+	private boolean shouldDrop(Backend backend) {
+		if (backend.failure != null) {
+			return true;
+		}
+		return races >= NARROW_AFTER_RACES && backend.wins < MIN_WIN_SHARE * races;
+	}
+}
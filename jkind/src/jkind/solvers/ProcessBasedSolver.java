@@ -18,7 +18,13 @@ import jkind.JKindException;
 public abstract class ProcessBasedSolver extends Solver {
 	protected static final String DONE = "@DONE";
 
-	protected Process process;
+	/*
+	 * Commands are buffered and only flushed when a response is about to be
+	 * read, so large definitions are not pushed through in small pieces
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	protected volatile Process process;
 	protected boolean stopped;
 	protected BufferedWriter toSolver;
 	protected BufferedReader fromSolver;
@@ -36,7 +42,8 @@ public abstract class ProcessBasedSolver extends Solver {
 					+ processBuilder.command().get(0), e);
 		}
 		addShutdownHook();
-		toSolver = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+		toSolver = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()),
+				BUFFER_SIZE);
 		fromSolver = new BufferedReader(new InputStreamReader(process.getInputStream()));
 	}
 
@@ -135,6 +142,43 @@ public abstract class ProcessBasedSolver extends Solver {
 		removeShutdownHook();
 	}
 
+	/**
+	 * Java cannot send the solver an interrupt signal portably, and an
+	 * interrupted solver is not used again, so the process is destroyed. The
+	 * engine's pending read then ends with a StopException.
+	 */
+	@Override
+	public void interrupt() {
+		super.interrupt();
+		Process running = process;
+		if (running != null) {
+			running.destroy();
+		}
+	}
+
+	protected String readLine() throws IOException {
+		try {
+			String line = fromSolver.readLine();
+			if (line == null) {
+				checkInterrupted();
+			}
+			return line;
+		} catch (IOException e) {
+			checkInterrupted();
+			throw e;
+		}
+	}
+
+	protected void flush() {
+		try {
+			toSolver.flush();
+		} catch (IOException e) {
+			checkInterrupted();
+			throw new JKindException("Unable to write to " + getSolverName() + ", "
+					+ "probably due to internal JKind error", e);
+		}
+	}
+
 	public void scratch(String str) {
 		if (scratch != null) {
 			scratch.println(str);
@@ -1,11 +1,13 @@
 package jkind.solvers;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import jkind.engines.StopException;
 import jkind.lustre.Expr;
 import jkind.lustre.NamedType;
 import jkind.lustre.Type;
@@ -13,7 +15,9 @@ import jkind.lustre.VarDecl;
 import jkind.sexp.Cons;
 import jkind.sexp.Sexp;
 import jkind.sexp.Symbol;
+import jkind.translation.Lustre2Sexp;
 import jkind.translation.Relation;
+import jkind.util.SexpUtil;
 
 public abstract class Solver {
 	public abstract void initialize();
@@ -28,14 +32,120 @@ public abstract class Solver {
 	 */
 	public abstract Result query(Sexp sexp);
 
+	/**
+	 * A query focused on the SAT result which holds only under the given
+	 * activation literals. Produces a model for SAT. Solvers with native
+	 * support for check-sat under assumptions avoid re-sending the facts
+	 * guarded by the literals.
+	 */
+	public Result query(List<Symbol> assumptions, Sexp sexp) {
+		return query(new Cons("=>", SexpUtil.conjoin(assumptions), sexp));
+	}
+
+	/**
+	 * Assert that each of the invariants holds at step k. Solvers which can
+	 * translate Lustre directly override this to avoid building the sexp.
+	 */
+	public void assertInvariants(Collection<Expr> invariants, int k) {
+		assertSexp(SexpUtil.conjoinInvariants(invariants, k));
+	}
+
+	public void assertExpr(Expr expr, int k) {
+		assertSexp(expr.accept(new Lustre2Sexp(k)));
+	}
+
+	/**
+	 * A query that each of the invariants holds at step k, as for
+	 * {@link #query(Sexp)}
+	 */
+	public Result queryInvariants(Collection<Expr> invariants, int k) {
+		return query(SexpUtil.conjoinInvariants(invariants, k));
+	}
+
 	public abstract void push();
 	public abstract void pop();
 
 	public abstract void comment(String str);
 	public abstract void stop();
 
+	/* Set from another thread to abandon the check in progress */
+	private volatile boolean interrupted = false;
+
+	/**
+	 * Abandon the check in progress, if any, from another thread. The check,
+	 * and any later one, ends with a {@link StopException}. The solver cannot
+	 * be used afterwards except to stop it.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	public boolean isInterrupted() {
+		return interrupted;
+	}
+
+	protected void checkInterrupted() {
+		if (interrupted) {
+			throw new StopException();
+		}
+	}
+
+	/**
+	 * Whether {@link #cancelQueries()} is supported
+	 */
+	public boolean canCancelQueries() {
+		return false;
+	}
+
+	/**
+	 * Abandon the check in progress, if any, from another thread, along with
+	 * every later check until {@link #resumeQueries()}. Abandoned checks end
+	 * with an {@link UnknownResult}, and unlike {@link #interrupt()} the solver
+	 * remains usable. Solvers which do not support this finish their checks.
+	 */
+	public void cancelQueries() {
+	}
+
+	public void resumeQueries() {
+	}
+
 	protected final Map<String, Type> varTypes = new HashMap<>();
 
+	/*
+	 * Depth of the assertion stack, maintained by push and pop so that a
+	 * reused solver can be returned to its base state
+	 */
+	protected int scopeDepth = 0;
+	private int baseDepth = -1;
+	private Map<String, Type> baseVarTypes;
+
+	/**
+	 * Record everything defined so far as the base state of the solver and
+	 * open a fresh scope on top of it.
+	 */
+	public void markBase() {
+		baseVarTypes = new HashMap<>(varTypes);
+		push();
+		baseDepth = scopeDepth;
+	}
+
+	/**
+	 * Discard all scopes, declarations, and assertions made since
+	 * {@link #markBase()}.
+	 */
+	public void resetToBase() {
+		if (baseDepth < 0) {
+			throw new IllegalStateException("Solver has no base state");
+		}
+
+		while (scopeDepth >= baseDepth) {
+			pop();
+		}
+		varTypes.clear();
+		varTypes.putAll(baseVarTypes);
+		push();
+	}
+
 	/**
 	 * Check if the solver supports all of the operators in the expression.
 	 * Useful since PDR may generate invariants using operators not supported by
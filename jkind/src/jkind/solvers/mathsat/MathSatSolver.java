@@ -2,6 +2,7 @@ package jkind.solvers.mathsat;
 
 import static java.util.stream.Collectors.toList;
 
+import java.util.Collections;
 import java.util.List;
 
 import jkind.JKindException;
@@ -46,10 +47,15 @@ public class MathSatSolver extends SmtLib2Solver {
 
 	@Override
 	public Result query(Sexp sexp) {
+		return query(Collections.emptyList(), sexp);
+	}
+
+	@Override
+	public Result query(List<Symbol> assumptions, Sexp sexp) {
 		Result result = null;
 		Symbol actLit = createActivationLiteral("act", actCount++);
 		send(new Cons("assert", new Cons("=>", actLit, new Cons("not", sexp))));
-		send(new Cons("check-sat-assumptions", new Cons(actLit)));
+		send(new Cons("check-sat-assumptions", new Cons(actLit, assumptions)));
 		String status = readFromSolver();
 		if (isSat(status)) {
 			send("(get-model)");
@@ -0,0 +1,177 @@
+package jkind.solvers.smtinterpol;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import jkind.lustre.ArrayAccessExpr;
+import jkind.lustre.ArrayExpr;
+import jkind.lustre.ArrayUpdateExpr;
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BoolExpr;
+import jkind.lustre.CastExpr;
+import jkind.lustre.CondactExpr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.IfThenElseExpr;
+import jkind.lustre.IntExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.NodeCallExpr;
+import jkind.lustre.RealExpr;
+import jkind.lustre.RecordAccessExpr;
+import jkind.lustre.RecordExpr;
+import jkind.lustre.RecordUpdateExpr;
+import jkind.lustre.TupleExpr;
+import jkind.lustre.UnaryExpr;
+import jkind.lustre.visitors.ExprVisitor;
+import jkind.translation.Lustre2Sexp;
+import jkind.util.StreamIndex;
+import de.uni_freiburg.informatik.ultimate.logic.Script;
+import de.uni_freiburg.informatik.ultimate.logic.Term;
+
+/**
+ * Translates a Lustre expression at a fixed step directly to an SMTInterpol
+ * term. Produces the same term as converting the result of
+ * {@link Lustre2Sexp}, without building the intermediate sexp.
+ */
+public class Expr2Term extends ScriptUser implements ExprVisitor<Term> {
+	private final int index;
+	private boolean pre = false;
+
+	public Expr2Term(Script script, int index) {
+		super(script);
+		this.index = index;
+	}
+
+	@Override
+	public Term visit(ArrayAccessExpr e) {
+		throw new IllegalArgumentException("Arrays must be flattened before translation to term");
+	}
+
+	@Override
+	public Term visit(ArrayExpr e) {
+		throw new IllegalArgumentException("Arrays must be flattened before translation to term");
+	}
+
+	@Override
+	public Term visit(ArrayUpdateExpr e) {
+		throw new IllegalArgumentException("Arrays must be flattened before translation to term");
+	}
+
+	@Override
+	public Term visit(BinaryExpr e) {
+		Term left = e.left.accept(this);
+		Term right = e.right.accept(this);
+
+		switch (e.op) {
+		case NOTEQUAL:
+		case XOR:
+			return term("not", term("=", left, right));
+
+		case ARROW:
+			if (pre) {
+				throw new IllegalArgumentException(
+						"Arrows cannot be nested under pre during translation to term");
+			}
+			return term("ite", term(Lustre2Sexp.INIT.str), left, right);
+
+		default:
+			return term(e.op.toString(), left, right);
+		}
+	}
+
+	@Override
+	public Term visit(BoolExpr e) {
+		return term(Boolean.toString(e.value));
+	}
+
+	@Override
+	public Term visit(CastExpr e) {
+		if (e.type == NamedType.REAL) {
+			return term("to_real", e.expr.accept(this));
+		} else if (e.type == NamedType.INT) {
+			return term("to_int", e.expr.accept(this));
+		} else {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	@Override
+	public Term visit(CondactExpr e) {
+		throw new IllegalArgumentException("Condacts must be removed before translation to term");
+	}
+
+	@Override
+	public Term visit(IdExpr e) {
+		return term(StreamIndex.encode(e.id, pre ? index - 1 : index).str);
+	}
+
+	@Override
+	public Term visit(IfThenElseExpr e) {
+		return term("ite", e.cond.accept(this), e.thenExpr.accept(this), e.elseExpr.accept(this));
+	}
+
+	@Override
+	public Term visit(IntExpr e) {
+		return integer(e.value);
+	}
+
+	@Override
+	public Term visit(NodeCallExpr e) {
+		throw new IllegalArgumentException("Node calls must be inlined before translation to term");
+	}
+
+	@Override
+	public Term visit(RealExpr e) {
+		Term numerator = integer(e.value.unscaledValue());
+		Term denominator = integer(BigDecimal.TEN.pow(e.value.scale()).toBigInteger());
+		return term("/", numerator, denominator);
+	}
+
+	@Override
+	public Term visit(RecordAccessExpr e) {
+		throw new IllegalArgumentException("Records must be flattened before translation to term");
+	}
+
+	@Override
+	public Term visit(RecordExpr e) {
+		throw new IllegalArgumentException("Records must be flattened before translation to term");
+	}
+
+	@Override
+	public Term visit(RecordUpdateExpr e) {
+		throw new IllegalArgumentException("Records must be flattened before translation to term");
+	}
+
+	@Override
+	public Term visit(TupleExpr e) {
+		throw new IllegalArgumentException("Tuples must be flattened before translation to term");
+	}
+
+	@Override
+	public Term visit(UnaryExpr e) {
+		switch (e.op) {
+		case PRE:
+			if (pre) {
+				throw new IllegalArgumentException(
+						"Nested pres must be removed before translation to term");
+			}
+			pre = true;
+			Term expr = e.expr.accept(this);
+			pre = false;
+			return expr;
+
+		case NEGATIVE:
+			return term("-", numeral(0), e.expr.accept(this));
+
+		default:
+			return term(e.op.toString(), e.expr.accept(this));
+		}
+	}
+
+	private Term integer(BigInteger value) {
+		if (value.signum() >= 0) {
+			return numeral(value);
+		} else {
+			return term("-", numeral(0), numeral(value.negate()));
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package jkind.solvers.smtinterpol;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 
 import jkind.JKindException;
+import jkind.lustre.Expr;
 import jkind.lustre.Type;
 import jkind.lustre.VarDecl;
 import jkind.lustre.values.Value;
@@ -30,7 +33,7 @@ import de.uni_freiburg.informatik.ultimate.smtinterpol.smtlib2.TerminationReques
 
 public class SmtInterpolSolver extends Solver {
 	private final Script script;
-	private TerminationRequestImpl term = new TerminationRequestImpl();
+	private volatile TerminationRequestImpl term = new TerminationRequestImpl();
 
 	public SmtInterpolSolver(String scratchBase) {
 		this.script = SmtInterpolUtil.getScript(scratchBase, term);
@@ -48,6 +51,35 @@ public class SmtInterpolSolver extends Solver {
 		script.assertTerm(convert(sexp));
 	}
 
+	@Override
+	public void assertInvariants(Collection<Expr> invariants, int k) {
+		script.assertTerm(translate(invariants, k));
+	}
+
+	@Override
+	public void assertExpr(Expr expr, int k) {
+		script.assertTerm(translate(expr, k));
+	}
+
+	private Term translate(Collection<Expr> invariants, int k) {
+		if (invariants.isEmpty()) {
+			return script.term("true");
+		} else if (invariants.size() == 1) {
+			return translate(invariants.iterator().next(), k);
+		}
+
+		Term[] conjuncts = new Term[invariants.size()];
+		int i = 0;
+		for (Expr invariant : invariants) {
+			conjuncts[i++] = translate(invariant, k);
+		}
+		return script.term("and", conjuncts);
+	}
+
+	private Term translate(Expr expr, int k) {
+		return expr.accept(new Expr2Term(script, k));
+	}
+
 	@Override
 	public void define(VarDecl decl) {
 		varTypes.put(decl.id, decl.type);
@@ -71,10 +103,28 @@ public class SmtInterpolSolver extends Solver {
 
 	@Override
 	public Result query(Sexp sexp) {
-		Model model;
+		return query(Collections.emptyList(), sexp);
+	}
+
+	@Override
+	public Result query(List<Symbol> assumptions, Sexp sexp) {
+		push();
+		for (Symbol assumption : assumptions) {
+			script.assertTerm(convert(assumption));
+		}
+		script.assertTerm(convert(new Cons("not", sexp)));
+		return checkSatAndPop();
+	}
 
+	@Override
+	public Result queryInvariants(Collection<Expr> invariants, int k) {
 		push();
-		assertSexp(new Cons("not", sexp));
+		script.assertTerm(script.term("not", translate(invariants, k)));
+		return checkSatAndPop();
+	}
+
+	private Result checkSatAndPop() {
+		Model model;
 
 		switch (script.checkSat()) {
 		case SAT:
@@ -87,6 +137,11 @@ public class SmtInterpolSolver extends Solver {
 			return new UnsatResult();
 
 		case UNKNOWN:
+			checkInterrupted();
+			if (isCancelled()) {
+				pop();
+				return new UnknownResult();
+			}
 			model = extractModel(script.getModel());
 			pop();
 			return new UnknownResult(model);
@@ -118,6 +173,7 @@ public class SmtInterpolSolver extends Solver {
 			return new UnsatResult(unsatCore);
 
 		case UNKNOWN:
+			checkInterrupted();
 			pop();
 			return new UnknownResult();
 		}
@@ -140,11 +196,13 @@ public class SmtInterpolSolver extends Solver {
 	@Override
 	public void push() {
 		script.push(1);
+		scopeDepth++;
 	}
 
 	@Override
 	public void pop() {
 		script.pop(1);
+		scopeDepth--;
 	}
 
 	@Override
@@ -160,6 +218,45 @@ public class SmtInterpolSolver extends Solver {
 		}
 	}
 
+	/**
+	 * SMTInterpol polls the termination request during a check, which then
+	 * returns unknown
+	 */
+	@Override
+	public void interrupt() {
+		super.interrupt();
+		TerminationRequestImpl request = term;
+		if (request != null) {
+			request.requestTermination();
+		}
+	}
+
+	@Override
+	public boolean canCancelQueries() {
+		return true;
+	}
+
+	@Override
+	public void cancelQueries() {
+		TerminationRequestImpl request = term;
+		if (request != null) {
+			request.setCancelled(true);
+		}
+	}
+
+	@Override
+	public void resumeQueries() {
+		TerminationRequestImpl request = term;
+		if (request != null) {
+			request.setCancelled(false);
+		}
+	}
+
+	private boolean isCancelled() {
+		TerminationRequestImpl request = term;
+		return request != null && request.isCancelled();
+	}
+
 	private Sort getSort(Type type) {
 		return SmtInterpolUtil.getSort(script, type);
 	}
@@ -1,41 +1,69 @@
 package jkind.solvers.smtinterpol;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import de.uni_freiburg.informatik.ultimate.logic.ApplicationTerm;
 import de.uni_freiburg.informatik.ultimate.logic.ConstantTerm;
 import de.uni_freiburg.informatik.ultimate.logic.Script;
 import de.uni_freiburg.informatik.ultimate.logic.Term;
 
+/**
+ * Substitution of arguments for variables. An instance remembers every
+ * subterm it has substituted, so applying it repeatedly to terms which share
+ * structure (predicates, cubes built from them) does the work only once.
+ * Since terms are shared by the script, results stay valid as long as the
+ * variables and arguments remain declared.
+ */
 public class Subst {
+	private final Script script;
+	private final Map<Term, Term> cache = new HashMap<>();
+
+	public Subst(Script script, Term[] variables, Term[] arguments) {
+		if (variables.length != arguments.length) {
+			throw new IllegalArgumentException();
+		}
+
+		this.script = script;
+		for (int i = 0; i < variables.length; i++) {
+			cache.put(variables[i], arguments[i]);
+		}
+	}
+
 	public static Term apply(Script script, Term term, Term[] variables, Term[] arguments) {
-		int i = indexOf(variables, term);
-		if (i >= 0) {
-			return arguments[i];
+		return new Subst(script, variables, arguments).apply(term);
+	}
+
+	public Term apply(Term term) {
+		Term result = cache.get(term);
+		if (result != null) {
+			return result;
 		}
 
 		if (term instanceof ApplicationTerm) {
-			return apply(script, (ApplicationTerm) term, variables, arguments);
+			result = apply((ApplicationTerm) term);
 		} else if (term instanceof ConstantTerm) {
-			return term;
+			result = term;
+		} else {
+			throw new IllegalArgumentException("Unhandled: " + term.getClass().getSimpleName());
 		}
 
-		throw new IllegalArgumentException("Unhandled: " + term.getClass().getSimpleName());
+		cache.put(term, result);
+		return result;
 	}
 
-	private static int indexOf(Term[] terms, Term term) {
-		for (int i = 0; i < terms.length; i++) {
-			if (terms[i] == term) {
-				return i;
-			}
+	private Term apply(ApplicationTerm at) {
+		Term[] params = at.getParameters();
+		if (params.length == 0) {
+			return at;
 		}
-		return -1;
-	}
 
-	private static Term apply(Script script, ApplicationTerm at, Term[] variables, Term[] arguments) {
-		Term[] params = at.getParameters();
 		Term[] terms = new Term[params.length];
+		boolean changed = false;
 		for (int i = 0; i < params.length; i++) {
-			terms[i] = apply(script, params[i], variables, arguments);
+			terms[i] = apply(params[i]);
+			changed |= terms[i] != params[i];
 		}
-		return script.term(at.getFunction().getName(), terms);
+		return changed ? script.term(at.getFunction().getName(), terms) : at;
 	}
 }
@@ -96,7 +96,10 @@ public class Term2Expr {
 			case "distinct":
 				return notEqual(expr(params[0]), expr(params[1]));
 			default:
-				BinaryOp op = BinaryOp.fromString(name);
+				BinaryOp op = Lustre2Term.decodeNonlinear(name);
+				if (op == null) {
+					op = BinaryOp.fromString(name);
+				}
 				return new BinaryExpr(expr(params[0]), op, expr(params[1]));
 			}
 		}
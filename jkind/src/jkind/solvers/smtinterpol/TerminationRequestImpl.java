@@ -4,16 +4,28 @@ import de.uni_freiburg.informatik.ultimate.smtinterpol.smtlib2.TerminationReques
 
 public class TerminationRequestImpl implements TerminationRequest {
 
-	private boolean requestTermination = false;
+	private volatile boolean requestTermination = false;
+	private volatile boolean cancelled = false;
 	
 	public void requestTermination() {
 		this.requestTermination = true;
 	}
+
+	/**
+	 * Unlike termination, cancellation can be withdrawn so that later checks
+	 * run normally
+	 */
+	public void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
 	
 	@Override
 	public boolean isTerminationRequested() {
-		// TODO Auto-generated method stub
-		return this.requestTermination;
+		return this.requestTermination || this.cancelled;
 	}
 
 }
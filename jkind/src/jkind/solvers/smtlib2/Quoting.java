@@ -1,5 +1,7 @@
 package jkind.solvers.smtlib2;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,6 +34,34 @@ public class Quoting {
 		}
 	}
 
+	/**
+	 * Write the quoted form of a sexp without building the quoted copy or an
+	 * intermediate string
+	 */
+	public static void write(Sexp sexp, Writer writer) throws IOException {
+		if (sexp instanceof Cons) {
+			Cons cons = (Cons) sexp;
+			writer.write('(');
+			write(cons.head, writer);
+			for (Sexp arg : cons.args) {
+				writer.write(' ');
+				write(arg, writer);
+			}
+			writer.write(')');
+		} else if (sexp instanceof Symbol) {
+			Symbol symb = (Symbol) sexp;
+			if (needsQuotes(symb)) {
+				writer.write('|');
+				writer.write(symb.str);
+				writer.write('|');
+			} else {
+				writer.write(symb.str);
+			}
+		} else {
+			throw new IllegalArgumentException();
+		}
+	}
+
 	private static List<Sexp> quoteSexps(List<? extends Sexp> sexps) {
 		List<Sexp> result = new ArrayList<>();
 		for (Sexp sexp : sexps) {
@@ -2,6 +2,7 @@ package jkind.solvers.smtlib2;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import jkind.JKindException;
@@ -38,7 +39,18 @@ public abstract class SmtLib2Solver extends ProcessBasedSolver {
 	}
 
 	protected void send(Sexp sexp) {
-		send(Quoting.quoteSexp(sexp).toString());
+		try {
+			if (scratch != null) {
+				Quoting.write(sexp, scratch);
+				scratch.println();
+			}
+			Quoting.write(sexp, toSolver);
+			toSolver.newLine();
+		} catch (IOException e) {
+			checkInterrupted();
+			throw new JKindException("Unable to write to " + getSolverName() + ", "
+					+ "probably due to internal JKind error", e);
+		}
 	}
 
 	protected void send(String str) {
@@ -46,8 +58,8 @@ public abstract class SmtLib2Solver extends ProcessBasedSolver {
 		try {
 			toSolver.append(str);
 			toSolver.newLine();
-			toSolver.flush();
 		} catch (IOException e) {
+			checkInterrupted();
 			throw new JKindException("Unable to write to " + getSolverName() + ", "
 					+ "probably due to internal JKind error", e);
 		}
@@ -87,9 +99,17 @@ public abstract class SmtLib2Solver extends ProcessBasedSolver {
 
 	@Override
 	public Result query(Sexp sexp) {
+		return query(Collections.emptyList(), sexp);
+	}
+
+	@Override
+	public Result query(List<Symbol> assumptions, Sexp sexp) {
 		Result result = null;
 		push();
 
+		for (Symbol assumption : assumptions) {
+			assertSexp(assumption);
+		}
 		assertSexp(new Cons("not", sexp));
 		send("(check-sat)");
 		String status = readFromSolver();
@@ -141,12 +161,13 @@ public abstract class SmtLib2Solver extends ProcessBasedSolver {
 	
 	protected String readFromSolver() {
 		send("(echo \"" + DONE + "\")");
+		flush();
 
 		try {
 			String line;
 			StringBuilder content = new StringBuilder();
 			while (true) {
-				line = fromSolver.readLine();
+				line = readLine();
 				comment(getSolverName() + ": " + line);
 				if (line == null) {
 					throw new JKindException(getSolverName() + " terminated unexpectedly");
@@ -160,7 +181,7 @@ public abstract class SmtLib2Solver extends ProcessBasedSolver {
 					// Ignore Z3 optimization information
 				} else if (line.contains("error \"") || line.contains("Error:")) {
 					// Flush the output since errors span multiple lines
-					while ((line = fromSolver.readLine()) != null) {
+					while ((line = readLine()) != null) {
 						comment(getSolverName() + ": " + line);
 						if (isDone(line)) {
 							break;
@@ -205,11 +226,13 @@ public abstract class SmtLib2Solver extends ProcessBasedSolver {
 	@Override
 	public void push() {
 		send("(push 1)");
+		scopeDepth++;
 	}
 
 	@Override
 	public void pop() {
 		send("(pop 1)");
+		scopeDepth--;
 	}
 
 	@Override
@@ -69,8 +69,8 @@ public class YicesSolver extends ProcessBasedSolver implements MaxSatSolver {
 		try {
 			toSolver.append(str);
 			toSolver.newLine();
-			toSolver.flush();
 		} catch (IOException e) {
+			checkInterrupted();
 			throw new JKindException("Unable to write to yices, "
 					+ "probably due to internal JKind error", e);
 		}
@@ -214,13 +214,14 @@ public class YicesSolver extends ProcessBasedSolver implements MaxSatSolver {
 
 	private Result readResult() {
 		send("(echo \"" + DONE + "\\n\")");
+		flush();
 
 		try {
 			String line;
 			StringBuilder content = new StringBuilder();
 			boolean seenContextError = false;
 			while (true) {
-				line = fromSolver.readLine();
+				line = readLine();
 				comment("YICES: " + line);
 				if (line == null) {
 					throw new JKindException("Yices terminated unexpectedly");
@@ -281,11 +282,13 @@ public class YicesSolver extends ProcessBasedSolver implements MaxSatSolver {
 	@Override
 	public void push() {
 		send("(push)");
+		scopeDepth++;
 	}
 
 	@Override
 	public void pop() {
 		send("(pop)");
+		scopeDepth--;
 	}
 
 	@Override
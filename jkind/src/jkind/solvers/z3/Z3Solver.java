@@ -2,6 +2,7 @@ package jkind.solvers.z3;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import jkind.lustre.NamedType;
@@ -46,14 +47,24 @@ public class Z3Solver extends SmtLib2Solver implements MaxSatSolver {
 
 	@Override
 	public Result query(Sexp sexp) {
+		return query(Collections.emptyList(), sexp);
+	}
+
+	@Override
+	public Result query(List<Symbol> assumptions, Sexp sexp) {
 		Result result;
 
 		if (linear) {
 			Symbol literal = createActivationLiteral("act", actCount++);
 			send(new Cons("assert", new Cons("=>", literal, new Cons("not", sexp))));
-			send(new Cons("check-sat", literal));
+			List<Symbol> literals = new ArrayList<>(assumptions);
+			literals.add(literal);
+			send(new Cons("check-sat", literals));
 		} else {
 			push();
+			for (Symbol assumption : assumptions) {
+				send(new Cons("assert", assumption));
+			}
 			send(new Cons("assert", new Cons("not", sexp)));
 			send(new Cons("check-sat"));
 		}
@@ -138,8 +149,9 @@ public class Z3Solver extends SmtLib2Solver implements MaxSatSolver {
 
 	private String readCore() {
 		String line = "";
+		flush();
 		try {
-			line = fromSolver.readLine();
+			line = readLine();
 			comment(getSolverName() + ": " + line);
 		} catch (IOException e) {
 			e.printStackTrace();
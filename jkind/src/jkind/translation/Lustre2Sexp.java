@@ -92,11 +92,11 @@ public class Lustre2Sexp implements ExprVisitor<Sexp> {
 	}
 	
 	private Symbol curr(String id) {
-		return new StreamIndex(id, index).getEncoded();
+		return StreamIndex.encode(id, index);
 	}
 
 	private Symbol pre(String id) {
-		return new StreamIndex(id, index - 1).getEncoded();
+		return StreamIndex.encode(id, index - 1);
 	}
 
 	private VarDecl curr(VarDecl vd) {
@@ -2,11 +2,25 @@ package jkind.util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jkind.sexp.Sexp;
 import jkind.sexp.Symbol;
 
 public class StreamIndex {
+	/*
+	 * Encoded symbols by stream and index. Engines encode the same streams at
+	 * the same indices over and over, so each encoding is built only once.
+	 * The table is cleared at the start of each run and stops growing once it
+	 * holds MAX_ENCODINGS symbols, after which further encodings are built
+	 * afresh.
+	 */
+	private static final int MAX_ENCODINGS = 1 << 16;
+	private static final Map<String, Map<Integer, Symbol>> encodings = new ConcurrentHashMap<>();
+	private static final AtomicInteger encodingCount = new AtomicInteger();
+
 	private final String stream;
 	private final int index;
 
@@ -24,7 +38,37 @@ public class StreamIndex {
 	}
 
 	public Symbol getEncoded() {
-		return new Symbol("$" + stream + getSuffix(index));
+		return encode(stream, index);
+	}
+
+	public static Symbol encode(String stream, int index) {
+		Map<Integer, Symbol> byIndex = encodings.get(stream);
+		if (byIndex != null) {
+			Symbol encoded = byIndex.get(index);
+			if (encoded != null) {
+				return encoded;
+			}
+		}
+
+		Symbol encoded = new Symbol("$" + stream + getSuffix(index));
+		if (encodingCount.get() >= MAX_ENCODINGS) {
+			return encoded;
+		}
+
+		if (byIndex == null) {
+			byIndex = encodings.computeIfAbsent(stream, s -> new ConcurrentHashMap<>());
+		}
+		Symbol existing = byIndex.putIfAbsent(index, encoded);
+		if (existing != null) {
+			return existing;
+		}
+		encodingCount.incrementAndGet();
+		return encoded;
+	}
+
+	public static void clearEncodings() {
+		encodings.clear();
+		encodingCount.set(0);
 	}
 
 	public static String getSuffix(int index) {
@@ -59,6 +103,14 @@ public class StreamIndex {
 		return result;
 	}
 
+	public static List<Symbol> encode(List<String> streams, int index) {
+		List<Symbol> result = new ArrayList<>(streams.size());
+		for (String stream : streams) {
+			result.add(encode(stream, index));
+		}
+		return result;
+	}
+
 	public static List<Symbol> getEncoded(List<StreamIndex> streamIndexes) {
 		List<Symbol> result = new ArrayList<>();
 		for (StreamIndex streamIndex : streamIndexes) {
@@ -68,7 +120,7 @@ public class StreamIndex {
 	}
 
 	public static Sexp conjoinEncodings(List<String> streams, int index) {
-		return SexpUtil.conjoin(getEncoded(fromList(streams, index)));
+		return SexpUtil.conjoin(encode(streams, index));
 	}
 
 	private static boolean isEncodedStreamIndex(String var) {